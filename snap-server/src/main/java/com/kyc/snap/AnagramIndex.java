@@ -0,0 +1,141 @@
+package com.kyc.snap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+class AnagramIndex {
+
+    private final Map<Integer, LengthIndex> lengthIndices = new HashMap<>();
+    private final int maxLength;
+
+    AnagramIndex(DictionaryManager dictionaryManager) {
+        for (int length : dictionaryManager.getLengths())
+            lengthIndices.put(length, new LengthIndex(dictionaryManager.getWordsWithLength(length)));
+        maxLength = dictionaryManager.getLengths().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    // the words with exactly the given letters
+    List<String> findAnagrams(String letters) {
+        byte[] signature = toLetters(letters);
+        Arrays.sort(signature);
+        LengthIndex index = lengthIndices.get(signature.length);
+        List<String> anagrams = new ArrayList<>();
+        if (index == null)
+            return anagrams;
+        for (int i = index.lowerBound(signature); i < index.words.size() && index.compare(i, signature) == 0; i++)
+            anagrams.add(index.words.get(index.order[i]));
+        return anagrams;
+    }
+
+    // the words of at least minLength letters that can be made from the given letters, longest first
+    List<String> findSubanagrams(String letters, int minLength, int limit) {
+        byte[] pool = toLetters(letters);
+        int[] counts = new int[26];
+        int poolMask = 0;
+        for (byte letter : pool) {
+            counts[letter]++;
+            poolMask |= 1 << letter;
+        }
+        List<String> subanagrams = new ArrayList<>();
+        for (int length = Math.min(pool.length, maxLength); length >= Math.max(minLength, 1); length--) {
+            LengthIndex index = lengthIndices.get(length);
+            if (index == null)
+                continue;
+            byte[] words = index.words.letters();
+            for (int wordIndex = 0; wordIndex < index.words.size(); wordIndex++) {
+                // most words use a letter that isn't in the pool at all, so check the masks before counting
+                if ((index.masks[wordIndex] & ~poolMask) != 0)
+                    continue;
+                int offset = wordIndex * length;
+                int position = 0;
+                while (position < length && --counts[words[offset + position]] >= 0)
+                    position++;
+                boolean fits = position == length;
+                for (int i = Math.min(position, length - 1); i >= 0; i--)
+                    counts[words[offset + i]]++;
+                if (fits) {
+                    if (subanagrams.size() == limit)
+                        return subanagrams;
+                    subanagrams.add(index.words.get(wordIndex));
+                }
+            }
+        }
+        return subanagrams;
+    }
+
+    private static byte[] toLetters(String letters) {
+        String normalized = letters.toUpperCase().replaceAll("[^A-Z]", "");
+        byte[] result = new byte[normalized.length()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = (byte) (normalized.charAt(i) - 'A');
+        return result;
+    }
+
+    private static class LengthIndex {
+
+        private final WordList words;
+        // the word indices in order of their sorted letters, and those sorted letters
+        private final int[] order;
+        private final byte[] signatures;
+        // the set of letters in each word, as a bitmask
+        private final int[] masks;
+
+        LengthIndex(WordList words) {
+            this.words = words;
+            int length = words.length();
+            byte[] letters = words.letters();
+            byte[] wordSignatures = new byte[letters.length];
+            masks = new int[words.size()];
+            for (int wordIndex = 0; wordIndex < words.size(); wordIndex++) {
+                int offset = wordIndex * length;
+                System.arraycopy(letters, offset, wordSignatures, offset, length);
+                Arrays.sort(wordSignatures, offset, offset + length);
+                for (int position = 0; position < length; position++)
+                    masks[wordIndex] |= 1 << letters[offset + position];
+            }
+            order = IntStream.range(0, words.size())
+                .boxed()
+                .sorted((i, j) -> {
+                    for (int position = 0; position < length; position++) {
+                        int cmp = Byte.compare(wordSignatures[i * length + position],
+                            wordSignatures[j * length + position]);
+                        if (cmp != 0)
+                            return cmp;
+                    }
+                    return Integer.compare(i, j);
+                })
+                .mapToInt(Integer::intValue)
+                .toArray();
+            signatures = new byte[letters.length];
+            for (int i = 0; i < order.length; i++)
+                System.arraycopy(wordSignatures, order[i] * length, signatures, i * length, length);
+        }
+
+        int lowerBound(byte[] signature) {
+            int low = 0;
+            int high = order.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(mid, signature) < 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        int compare(int i, byte[] signature) {
+            int length = signature.length;
+            for (int position = 0; position < length; position++) {
+                int cmp = Byte.compare(signatures[i * length + position], signature[position]);
+                if (cmp != 0)
+                    return cmp;
+            }
+            return 0;
+        }
+    }
+}
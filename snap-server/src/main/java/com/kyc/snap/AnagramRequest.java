@@ -0,0 +1,29 @@
+package com.kyc.snap;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class AnagramRequest {
+
+    private final List<AnagramQuery> queries;
+
+    @Data
+    public static class AnagramQuery {
+
+        private final String letters;
+
+        private AnagramQueryType type = AnagramQueryType.EXACT;
+        // only for subanagram queries
+        private int minLength = 3;
+        private int limit = 1000;
+    }
+
+    public enum AnagramQueryType {
+        // words with exactly the given letters
+        EXACT,
+        // words that can be made from some of the given letters
+        SUBANAGRAM,
+    }
+}
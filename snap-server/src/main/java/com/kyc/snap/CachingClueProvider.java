@@ -0,0 +1,52 @@
+package com.kyc.snap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+
+// Caches the answers of each clue on disk, one JSON file per normalized clue and length, so that they survive restarts
+// and are shared across puzzles
+class CachingClueProvider implements ClueProvider {
+
+    private static final TypeReference<List<CrosswordClueResult>> RESULTS_TYPE =
+        new TypeReference<List<CrosswordClueResult>>() {};
+
+    private final ClueProvider delegate;
+    private final File cacheDirectory;
+    private final ObjectMapper objectMapper;
+
+    CachingClueProvider(ClueProvider delegate, String cacheDirectory, ObjectMapper objectMapper) {
+        this.delegate = delegate;
+        this.cacheDirectory = new File(cacheDirectory);
+        this.objectMapper = objectMapper;
+        this.cacheDirectory.mkdirs();
+    }
+
+    @Override
+    public List<CrosswordClueResult> solveClue(String clue, int numLetters) {
+        String normalizedClue = clue.trim().replaceAll("\\s+", " ").toLowerCase();
+        File cacheFile = new File(cacheDirectory, Hashing.sha256()
+            .hashString(numLetters + "\t" + normalizedClue, StandardCharsets.UTF_8)
+            .toString() + ".json");
+        try {
+            if (cacheFile.exists())
+                return objectMapper.readValue(cacheFile, RESULTS_TYPE);
+            List<CrosswordClueResult> results = delegate.solveClue(clue, numLetters);
+            // write to a temporary file first so that concurrent readers never see a partial file
+            File tempFile = File.createTempFile("clue", ".json", cacheDirectory);
+            objectMapper.writeValue(tempFile, results);
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+            return results;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
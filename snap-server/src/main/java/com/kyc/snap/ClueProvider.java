@@ -0,0 +1,9 @@
+package com.kyc.snap;
+
+import java.util.List;
+
+interface ClueProvider {
+
+    // possible answers to the clue with the given number of letters, in uppercase
+    List<CrosswordClueResult> solveClue(String clue, int numLetters);
+}
@@ -0,0 +1,20 @@
+package com.kyc.snap;
+
+import java.util.Arrays;
+
+class ColorClusters {
+
+    private final int[] rgbs;
+    private final int[] clusterRgbs;
+
+    // rgbs must be sorted and distinct, and clusterRgbs[i] is the center of the cluster containing rgbs[i]
+    ColorClusters(int[] rgbs, int[] clusterRgbs) {
+        this.rgbs = rgbs;
+        this.clusterRgbs = clusterRgbs;
+    }
+
+    int get(int rgb, int defaultValue) {
+        int index = Arrays.binarySearch(rgbs, rgb);
+        return index >= 0 ? clusterRgbs[index] : defaultValue;
+    }
+}
@@ -0,0 +1,124 @@
+package com.kyc.snap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+class ColorQuantizer {
+
+    private static final int MAX_ITERATIONS = 100;
+
+    static ColorClusters cluster(int[] rgbs, int numClusters, long seed) {
+        // collapse the input into a histogram of distinct colors, since grids repeat the same few colors many times
+        int[] sortedRgbs = rgbs.clone();
+        Arrays.sort(sortedRgbs);
+        int numColors = 0;
+        int[] colors = new int[sortedRgbs.length];
+        long[] weights = new long[sortedRgbs.length];
+        for (int i = 0; i < sortedRgbs.length; i++) {
+            if (i == 0 || sortedRgbs[i] != sortedRgbs[i - 1])
+                colors[numColors++] = sortedRgbs[i];
+            weights[numColors - 1]++;
+        }
+        colors = Arrays.copyOf(colors, numColors);
+        weights = Arrays.copyOf(weights, numColors);
+
+        double[] points = new double[3 * numColors];
+        for (int i = 0; i < numColors; i++) {
+            AdjustedRGB adjusted = AdjustedRGB.from(colors[i]);
+            points[3 * i] = adjusted.getRedSquared();
+            points[3 * i + 1] = adjusted.getGreenSquared();
+            points[3 * i + 2] = adjusted.getBlueSquared();
+        }
+
+        int k = Math.min(numClusters, numColors);
+        double[] centers = initialCenters(points, weights, k, new Random(seed));
+        int[] labels = new int[numColors];
+        Arrays.fill(labels, -1);
+        double[] sums = new double[3 * k];
+        long[] clusterWeights = new long[k];
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            boolean changed = false;
+            for (int i = 0; i < numColors; i++) {
+                int label = nearestCenter(points, i, centers, k);
+                if (label != labels[i]) {
+                    labels[i] = label;
+                    changed = true;
+                }
+            }
+            if (!changed)
+                break;
+
+            Arrays.fill(sums, 0);
+            Arrays.fill(clusterWeights, 0);
+            for (int i = 0; i < numColors; i++) {
+                for (int c = 0; c < 3; c++)
+                    sums[3 * labels[i] + c] += weights[i] * points[3 * i + c];
+                clusterWeights[labels[i]] += weights[i];
+            }
+            for (int j = 0; j < k; j++)
+                if (clusterWeights[j] > 0)
+                    for (int c = 0; c < 3; c++)
+                        centers[3 * j + c] = sums[3 * j + c] / clusterWeights[j];
+        }
+
+        int[] centerRgbs = new int[k];
+        for (int j = 0; j < k; j++)
+            centerRgbs[j] = new AdjustedRGB((long) centers[3 * j], (long) centers[3 * j + 1], (long) centers[3 * j + 2]).toRGB();
+        int[] clusterRgbs = new int[numColors];
+        for (int i = 0; i < numColors; i++)
+            clusterRgbs[i] = centerRgbs[labels[i]];
+        return new ColorClusters(colors, clusterRgbs);
+    }
+
+    // weighted k-means++: each new center is a color picked with probability proportional to its weight times its squared
+    // distance from the nearest existing center
+    private static double[] initialCenters(double[] points, long[] weights, int k, Random random) {
+        int numColors = weights.length;
+        double[] centers = new double[3 * k];
+        double[] distances = new double[numColors];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < k; j++) {
+            double total = 0;
+            for (int i = 0; i < numColors; i++)
+                total += j == 0 ? weights[i] : weights[i] * distances[i];
+            int chosen = numColors - 1;
+            double target = random.nextDouble() * total;
+            for (int i = 0; i < numColors; i++) {
+                target -= j == 0 ? weights[i] : weights[i] * distances[i];
+                if (target < 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+            System.arraycopy(points, 3 * chosen, centers, 3 * j, 3);
+            for (int i = 0; i < numColors; i++)
+                distances[i] = Math.min(distances[i], squaredDistance(points, i, centers, j));
+        }
+        return centers;
+    }
+
+    private static int nearestCenter(double[] points, int i, double[] centers, int k) {
+        int nearest = 0;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < k; j++) {
+            double distance = squaredDistance(points, i, centers, j);
+            if (distance < nearestDistance) {
+                nearest = j;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    private static double squaredDistance(double[] points, int i, double[] centers, int j) {
+        double distance = 0;
+        for (int c = 0; c < 3; c++) {
+            double diff = points[3 * i + c] - centers[3 * j + c];
+            distance += diff * diff;
+        }
+        return distance;
+    }
+
+    private ColorQuantizer() {
+    }
+}
@@ -0,0 +1,68 @@
+package com.kyc.snap;
+
+import java.awt.image.BufferedImage;
+
+class ColorSampler {
+
+    private final int width;
+    private final int height;
+    private final long[] redSquaredSums;
+    private final long[] greenSquaredSums;
+    private final long[] blueSquaredSums;
+
+    private ColorSampler(int width, int height, long[] redSquaredSums, long[] greenSquaredSums, long[] blueSquaredSums) {
+        this.width = width;
+        this.height = height;
+        this.redSquaredSums = redSquaredSums;
+        this.greenSquaredSums = greenSquaredSums;
+        this.blueSquaredSums = blueSquaredSums;
+    }
+
+    static ColorSampler of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int stride = width + 1;
+        // summed-area tables of the squared channels, so the average over any rectangle is a constant time lookup
+        long[] redSquaredSums = new long[stride * (height + 1)];
+        long[] greenSquaredSums = new long[stride * (height + 1)];
+        long[] blueSquaredSums = new long[stride * (height + 1)];
+        int[] rgbs = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, rgbs, 0, width);
+            long rowRed = 0, rowGreen = 0, rowBlue = 0;
+            int prev = y * stride + 1;
+            int curr = prev + stride;
+            for (int x = 0; x < width; x++, prev++, curr++) {
+                int red = (rgbs[x] >> 16) & 0xff;
+                int green = (rgbs[x] >> 8) & 0xff;
+                int blue = rgbs[x] & 0xff;
+                rowRed += red * red;
+                rowGreen += green * green;
+                rowBlue += blue * blue;
+                redSquaredSums[curr] = redSquaredSums[prev] + rowRed;
+                greenSquaredSums[curr] = greenSquaredSums[prev] + rowGreen;
+                blueSquaredSums[curr] = blueSquaredSums[prev] + rowBlue;
+            }
+        }
+        return new ColorSampler(width, height, redSquaredSums, greenSquaredSums, blueSquaredSums);
+    }
+
+    int averageRgb(int startX, int startY, int width, int height) {
+        int minX = Math.max(startX, 0);
+        int minY = Math.max(startY, 0);
+        int maxX = Math.min(startX + width, this.width);
+        int maxY = Math.min(startY + height, this.height);
+        if (minX >= maxX || minY >= maxY)
+            return -1;
+        long numRgbs = (long) (maxX - minX) * (maxY - minY);
+        return new AdjustedRGB(
+            sum(redSquaredSums, minX, minY, maxX, maxY) / numRgbs,
+            sum(greenSquaredSums, minX, minY, maxX, maxY) / numRgbs,
+            sum(blueSquaredSums, minX, minY, maxX, maxY) / numRgbs).toRGB();
+    }
+
+    private long sum(long[] sums, int minX, int minY, int maxX, int maxY) {
+        int stride = width + 1;
+        return sums[maxY * stride + maxX] - sums[minY * stride + maxX] - sums[maxY * stride + minX] + sums[minY * stride + minX];
+    }
+}
@@ -0,0 +1,36 @@
+package com.kyc.snap;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import io.dropwizard.cli.Command;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+class CompileDictionaryCommand extends Command {
+
+    CompileDictionaryCommand() {
+        super("compile-dictionary", "Compiles word lists into a dictionary file that the server can memory-map");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        subparser.addArgument("output").help("compiled dictionary file to write");
+        subparser.addArgument("inputs").nargs("+").help("word lists with one word per line");
+    }
+
+    @Override
+    public void run(Bootstrap<?> bootstrap, Namespace namespace) throws Exception {
+        List<String> inputs = namespace.getList("inputs");
+        ByteBuffer dictionary = DictionaryManager.compile(inputs.toArray(new String[inputs.size()]));
+        try (FileChannel output = FileChannel.open(Paths.get(namespace.getString("output")),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (dictionary.hasRemaining())
+                output.write(dictionary);
+        }
+    }
+}
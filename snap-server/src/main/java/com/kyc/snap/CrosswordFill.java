@@ -0,0 +1,10 @@
+package com.kyc.snap;
+
+import lombok.Data;
+
+@Data
+public class CrosswordFill {
+
+    private final ParsedGrid parsedGrid;
+    private final int score;
+}
@@ -0,0 +1,296 @@
+package com.kyc.snap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+
+import lombok.Data;
+
+// Finds complete fills of a crossword grid with dictionary words, by backtracking over bitset domains of the words
+// that can go in each blank, keeping every crossing arc consistent. Fills score 1 + confidence for each blank filled
+// with one of its clue's suggested answers, and the search is pruned once it can't beat the best fills found so far.
+class CrosswordFiller {
+
+    private final int numBlanks;
+    private final WordList[] wordLists;
+    private final int[] lengths;
+    // blank i crosses blank crossingBlanks[i][k] at its own letter crossingLetterIndices[i][k], which is letter
+    // crossingOtherLetterIndices[i][k] of the other blank
+    private final int[][] crossingBlanks;
+    private final int[][] crossingLetterIndices;
+    private final int[][] crossingOtherLetterIndices;
+    // the suggested answers of each blank that are in the dictionary, from highest to lowest score
+    private final int[][] answerIndices;
+    private final int[][] answerScores;
+
+    private long deadline;
+    private int maxFills;
+    private PriorityQueue<Fill> bestFills;
+    // every change to the domains since the search started, as the blank, the index into its bitset and the bits
+    // before the change, so that backtracking can undo the changes of each step instead of copying the domains
+    private int[] trailBlanks;
+    private int[] trailIndices;
+    private long[] trailBits;
+    private int trailSize;
+
+    CrosswordFiller(DictionaryManager dictionaryManager, List<CrosswordBlank> blanks,
+            List<List<CrosswordClueResult>> results) {
+        numBlanks = blanks.size();
+        wordLists = new WordList[numBlanks];
+        lengths = new int[numBlanks];
+        answerIndices = new int[numBlanks][];
+        answerScores = new int[numBlanks][];
+        for (int i = 0; i < numBlanks; i++) {
+            lengths[i] = blanks.get(i).getLength();
+            wordLists[i] = dictionaryManager.getWordsWithLength(lengths[i]);
+
+            Map<Integer, Integer> scores = new HashMap<>();
+            for (CrosswordClueResult result : results.get(i)) {
+                int wordIndex = wordLists[i].indexOf(result.getAnswer());
+                if (wordIndex != -1)
+                    scores.merge(wordIndex, 1 + result.getConfidence(), Math::max);
+            }
+            List<Map.Entry<Integer, Integer>> answers = new ArrayList<>(scores.entrySet());
+            answers.sort(Map.Entry.<Integer, Integer> comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+            answerIndices[i] = answers.stream().mapToInt(Map.Entry::getKey).toArray();
+            answerScores[i] = answers.stream().mapToInt(Map.Entry::getValue).toArray();
+        }
+
+        Map<List<Integer>, int[]> cells = new HashMap<>();
+        List<List<int[]>> crossings = new ArrayList<>();
+        for (int i = 0; i < numBlanks; i++)
+            crossings.add(new ArrayList<>());
+        for (int i = 0; i < numBlanks; i++) {
+            CrosswordBlank blank = blanks.get(i);
+            for (int letterIndex = 0; letterIndex < lengths[i]; letterIndex++) {
+                int row = blank.getRow();
+                int col = blank.getCol();
+                if (blank.getPosition().getOrientation() == CrosswordClueOrientation.ACROSS)
+                    col += letterIndex;
+                else
+                    row += letterIndex;
+                int[] other = cells.putIfAbsent(Arrays.asList(row, col), new int[] { i, letterIndex });
+                if (other != null) {
+                    crossings.get(i).add(new int[] { other[0], letterIndex, other[1] });
+                    crossings.get(other[0]).add(new int[] { i, other[1], letterIndex });
+                }
+            }
+        }
+        crossingBlanks = new int[numBlanks][];
+        crossingLetterIndices = new int[numBlanks][];
+        crossingOtherLetterIndices = new int[numBlanks][];
+        for (int i = 0; i < numBlanks; i++) {
+            crossingBlanks[i] = crossings.get(i).stream().mapToInt(crossing -> crossing[0]).toArray();
+            crossingLetterIndices[i] = crossings.get(i).stream().mapToInt(crossing -> crossing[1]).toArray();
+            crossingOtherLetterIndices[i] = crossings.get(i).stream().mapToInt(crossing -> crossing[2]).toArray();
+        }
+    }
+
+    // the best fills found within the time budget, from highest to lowest score
+    synchronized List<Fill> findFills(int maxFills, long timeBudgetMillis) {
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(timeBudgetMillis, 0));
+        this.maxFills = maxFills;
+        this.bestFills = new PriorityQueue<>(Comparator.comparingInt(Fill::getScore));
+        this.trailBlanks = new int[64];
+        this.trailIndices = new int[64];
+        this.trailBits = new long[64];
+        this.trailSize = 0;
+
+        long[][] domains = new long[numBlanks][];
+        for (int i = 0; i < numBlanks; i++) {
+            domains[i] = new long[(wordLists[i].size() + 63) / 64];
+            Arrays.fill(domains[i], -1L);
+            if (wordLists[i].size() % 64 != 0)
+                domains[i][domains[i].length - 1] = (1L << wordLists[i].size()) - 1;
+        }
+        int[] assignment = new int[numBlanks];
+        Arrays.fill(assignment, -1);
+        int[] allBlanks = new int[numBlanks];
+        for (int i = 0; i < numBlanks; i++)
+            allBlanks[i] = i;
+        if (maxFills > 0 && propagate(domains, allBlanks))
+            search(domains, assignment, 0);
+
+        List<Fill> fills = new ArrayList<>(bestFills);
+        fills.sort(Comparator.comparingInt(Fill::getScore).reversed());
+        return fills;
+    }
+
+    String getWord(int blank, int wordIndex) {
+        return wordLists[blank].get(wordIndex);
+    }
+
+    private boolean search(long[][] domains, int[] assignment, int score) {
+        if (System.nanoTime() - deadline > 0)
+            return false;
+
+        // the unassigned blank with the fewest words left, and the best score the rest of the grid could add
+        int blank = -1;
+        int blankSize = Integer.MAX_VALUE;
+        int bound = score;
+        for (int i = 0; i < numBlanks; i++)
+            if (assignment[i] == -1) {
+                int size = cardinality(domains[i]);
+                if (size < blankSize) {
+                    blank = i;
+                    blankSize = size;
+                }
+                for (int k = 0; k < answerIndices[i].length; k++)
+                    if (contains(domains[i], answerIndices[i][k])) {
+                        bound += answerScores[i][k];
+                        break;
+                    }
+            }
+        if (bestFills.size() == maxFills && bound <= bestFills.peek().getScore())
+            return true;
+        if (blank == -1) {
+            bestFills.add(new Fill(assignment.clone(), score));
+            if (bestFills.size() > maxFills)
+                bestFills.poll();
+            return true;
+        }
+
+        // try the suggested answers first, then the rest of the domain in dictionary order
+        long[] domain = domains[blank];
+        for (int k = 0; k < answerIndices[blank].length; k++)
+            if (contains(domain, answerIndices[blank][k])
+                    && !tryWord(domains, assignment, blank, answerIndices[blank][k], score + answerScores[blank][k]))
+                return false;
+        for (int i = 0; i < domain.length; i++)
+            for (long bits = domain[i]; bits != 0; bits &= bits - 1) {
+                int wordIndex = i * 64 + Long.numberOfTrailingZeros(bits);
+                if (!isAnswer(blank, wordIndex) && !tryWord(domains, assignment, blank, wordIndex, score))
+                    return false;
+            }
+        return true;
+    }
+
+    // returns false if the search ran out of time
+    private boolean tryWord(long[][] domains, int[] assignment, int blank, int wordIndex, int score) {
+        for (int i = 0; i < numBlanks; i++)
+            if (assignment[i] == wordIndex && lengths[i] == lengths[blank])
+                return true;
+        int trailMark = trailSize;
+        for (int i = 0; i < domains[blank].length; i++) {
+            long bits = i == wordIndex / 64 ? 1L << wordIndex : 0;
+            if (domains[blank][i] != bits)
+                set(domains, blank, i, bits);
+        }
+        assignment[blank] = wordIndex;
+        boolean inTime = !propagate(domains, new int[] { blank }) || search(domains, assignment, score);
+        assignment[blank] = -1;
+        undo(domains, trailMark);
+        return inTime;
+    }
+
+    // removes words that don't fit any remaining word of a crossing blank, until every crossing is consistent, and
+    // returns false if some blank has no words left
+    private boolean propagate(long[][] domains, int[] changedBlanks) {
+        boolean[] queued = new boolean[numBlanks];
+        List<Integer> queue = new ArrayList<>();
+        for (int blank : changedBlanks) {
+            queued[blank] = true;
+            queue.add(blank);
+        }
+        long[] allowed = new long[0];
+        for (int head = 0; head < queue.size(); head++) {
+            int blank = queue.get(head);
+            queued[blank] = false;
+            for (int k = 0; k < crossingBlanks[blank].length; k++) {
+                int other = crossingBlanks[blank][k];
+                int letterIndex = crossingLetterIndices[blank][k];
+                int otherLetterIndex = crossingOtherLetterIndices[blank][k];
+                long[] otherDomain = domains[other];
+                if (allowed.length != otherDomain.length)
+                    allowed = new long[otherDomain.length];
+                else
+                    Arrays.fill(allowed, 0);
+                for (int letter = 0; letter < 26; letter++)
+                    if (intersects(domains[blank], wordLists[blank].wordsWithLetter(letterIndex, letter))) {
+                        long[] wordsWithLetter = wordLists[other].wordsWithLetter(otherLetterIndex, letter);
+                        for (int i = 0; i < allowed.length; i++)
+                            allowed[i] |= wordsWithLetter[i];
+                    }
+                boolean changed = false;
+                boolean empty = true;
+                for (int i = 0; i < otherDomain.length; i++) {
+                    long bits = otherDomain[i] & allowed[i];
+                    if (bits != otherDomain[i]) {
+                        set(domains, other, i, bits);
+                        changed = true;
+                    }
+                    empty &= bits == 0;
+                }
+                if (empty)
+                    return false;
+                if (changed && !queued[other]) {
+                    queued[other] = true;
+                    queue.add(other);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void set(long[][] domains, int blank, int index, long bits) {
+        if (trailSize == trailBits.length) {
+            trailBlanks = Arrays.copyOf(trailBlanks, 2 * trailSize);
+            trailIndices = Arrays.copyOf(trailIndices, 2 * trailSize);
+            trailBits = Arrays.copyOf(trailBits, 2 * trailSize);
+        }
+        trailBlanks[trailSize] = blank;
+        trailIndices[trailSize] = index;
+        trailBits[trailSize] = domains[blank][index];
+        trailSize++;
+        domains[blank][index] = bits;
+    }
+
+    // restores the domains to how they were when the trail had the given size
+    private void undo(long[][] domains, int trailMark) {
+        while (trailSize > trailMark) {
+            trailSize--;
+            domains[trailBlanks[trailSize]][trailIndices[trailSize]] = trailBits[trailSize];
+        }
+    }
+
+    private boolean isAnswer(int blank, int wordIndex) {
+        for (int answerIndex : answerIndices[blank])
+            if (answerIndex == wordIndex)
+                return true;
+        return false;
+    }
+
+    private static boolean contains(long[] bitset, int index) {
+        return (bitset[index / 64] & (1L << index)) != 0;
+    }
+
+    private static boolean intersects(long[] bitset1, long[] bitset2) {
+        for (int i = 0; i < bitset1.length; i++)
+            if ((bitset1[i] & bitset2[i]) != 0)
+                return true;
+        return false;
+    }
+
+    private static int cardinality(long[] bitset) {
+        int cardinality = 0;
+        for (long bits : bitset)
+            cardinality += Long.bitCount(bits);
+        return cardinality;
+    }
+
+    @Data
+    static class Fill {
+        // the index of the word in each blank
+        private final int[] wordIndices;
+        private final int score;
+    }
+}
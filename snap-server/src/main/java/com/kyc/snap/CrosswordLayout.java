@@ -0,0 +1,67 @@
+package com.kyc.snap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.BadRequestException;
+
+import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
+import com.kyc.snap.CrosswordCluesList.CrosswordClue;
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+
+// The blocks, clue numbers and answer letters of a crossword to export, where every square outside a blank is a block
+class CrosswordLayout {
+
+    final int numRows;
+    final int numCols;
+    final boolean[][] blocks;
+    final int[][] numbers;
+    // the letters in each square, uppercase, or the empty string if unknown
+    final String[][] letters;
+    // in order of clue number, across before down
+    final List<CrosswordBlank> blanks;
+    private final Map<CrosswordCluePosition, String> clues = new HashMap<>();
+
+    CrosswordLayout(ExportRequest request) {
+        if (request.getCrosswordGrid() == null)
+            throw new BadRequestException("A crossword grid is required for this format");
+        ParsedGrid parsedGrid = request.getParsedGrid();
+        numRows = parsedGrid.getNumRows();
+        numCols = parsedGrid.getNumCols();
+        blocks = new boolean[numRows][numCols];
+        numbers = new int[numRows][numCols];
+        letters = new String[numRows][numCols];
+        for (int row = 0; row < numRows; row++)
+            for (int col = 0; col < numCols; col++) {
+                blocks[row][col] = true;
+                letters[row][col] = "";
+            }
+        for (ParsedGridSquare square : parsedGrid.getSquares())
+            // parsed squares may also hold their clue number
+            letters[square.getRow()][square.getCol()] = square.getText().replaceAll("[^A-Za-z]", "").toUpperCase();
+
+        blanks = new ArrayList<>(request.getCrosswordGrid().getBlanks());
+        blanks.sort(Comparator.<CrosswordBlank> comparingInt(blank -> Integer.parseInt(blank.getPosition().getNumber()))
+            .thenComparing(blank -> blank.getPosition().getOrientation()));
+        for (CrosswordBlank blank : blanks) {
+            numbers[blank.getRow()][blank.getCol()] = Integer.parseInt(blank.getPosition().getNumber());
+            for (int letterIndex = 0; letterIndex < blank.getLength(); letterIndex++) {
+                if (blank.getPosition().getOrientation() == CrosswordClueOrientation.ACROSS)
+                    blocks[blank.getRow()][blank.getCol() + letterIndex] = false;
+                else
+                    blocks[blank.getRow() + letterIndex][blank.getCol()] = false;
+            }
+        }
+        if (request.getClues() != null)
+            for (CrosswordClue clue : request.getClues().getClues())
+                clues.put(clue.getPosition(), clue.getClue());
+    }
+
+    String getClue(CrosswordBlank blank) {
+        return clues.getOrDefault(blank.getPosition(), "");
+    }
+}
@@ -1,36 +1,28 @@
 package com.kyc.snap;
 
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Element;
-
 import com.google.common.base.Joiner;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Streams;
-import com.google.common.io.CharStreams;
+import com.google.common.base.Throwables;
 import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
 import com.kyc.snap.CrosswordCluesList.CrosswordClue;
 import com.kyc.snap.CrosswordGrid.CrosswordBlank;
 import com.kyc.snap.ParsedGrid.ParsedGridSquare;
 
+import io.dropwizard.util.Duration;
 import lombok.Data;
 
 class CrosswordManager {
@@ -38,9 +30,23 @@ class CrosswordManager {
     private static final Pattern NUMBER_PATTERN = Pattern.compile("^[0-9]+");
 
     private final DictionaryManager dictionaryManager;
+    private final DictionaryAutomaton dictionaryAutomaton;
+    private final ClueProvider clueProvider;
+    private final ExecutorService clueLookupExecutor;
+    private final ForkJoinPool solverPool;
+    private final int maxFills;
+    private final long maxFillTimeBudgetMillis;
 
-    CrosswordManager(DictionaryManager dictionaryManager) {
+    CrosswordManager(DictionaryManager dictionaryManager, DictionaryAutomaton dictionaryAutomaton,
+            ClueProvider clueProvider, ExecutorService clueLookupExecutor, ForkJoinPool solverPool, int maxFills,
+            Duration maxFillTimeBudget) {
         this.dictionaryManager = dictionaryManager;
+        this.dictionaryAutomaton = dictionaryAutomaton;
+        this.clueProvider = clueProvider;
+        this.clueLookupExecutor = clueLookupExecutor;
+        this.solverPool = solverPool;
+        this.maxFills = maxFills;
+        this.maxFillTimeBudgetMillis = maxFillTimeBudget.toMilliseconds();
     }
 
     Optional<CrosswordGrid> toCrosswordGrid(ParsedGrid parsedGrid, double confidence) {
@@ -138,118 +144,112 @@ class CrosswordManager {
         return new CrosswordCluesList(clues);
     }
 
-    ParsedGrid solveCrossword(ParsedGrid parsedGrid, CrosswordGrid crosswordGrid, CrosswordCluesList clues) {
+    // the suggested answers of each clue
+    List<List<CrosswordClueResult>> solveClues(CrosswordGrid crosswordGrid, CrosswordCluesList clues) {
         Map<CrosswordCluePosition, CrosswordBlank> blanks = crosswordGrid.getBlanks().stream()
                 .collect(Collectors.toMap(CrosswordBlank::getPosition, blank -> blank));
-        List<List<CrosswordClueResult>> results = new ArrayList<>();
-        for (CrosswordClue clue : clues.getClues()) {
-            CrosswordBlank blank = blanks.get(clue.getPosition());
-            results.add(solveClue(clue.getClue(), blank.getLength()));
+        // clues are looked up concurrently, at most maxConcurrentClueLookups at a time across all puzzles
+        List<CompletableFuture<List<CrosswordClueResult>>> lookups = clues.getClues().stream()
+                .map(clue -> CompletableFuture.supplyAsync(
+                    () -> clueProvider.solveClue(clue.getClue(), blanks.get(clue.getPosition()).getLength()),
+                    clueLookupExecutor))
+                .collect(Collectors.toList());
+        try {
+            List<List<CrosswordClueResult>> results = new ArrayList<>();
+            for (CompletableFuture<List<CrosswordClueResult>> lookup : lookups)
+                results.add(lookup.join());
+            return results;
+        } catch (CompletionException e) {
+            lookups.forEach(lookup -> lookup.cancel(true));
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
         }
+    }
 
-        Multimap<Pos, CluePos> allCluePoses = ArrayListMultimap.create();
-        for (int i = 0; i < clues.getClues().size(); i++) {
-            CrosswordBlank blank = blanks.get(clues.getClues().get(i).getPosition());
-            for (int letterIndex = 0; letterIndex < blank.getLength(); letterIndex++) {
-                int row = blank.getRow();
-                int col = blank.getCol();
-                if (blank.getPosition().getOrientation() == CrosswordClueOrientation.ACROSS)
-                    col += letterIndex;
-                else
-                    row += letterIndex;
-                allCluePoses.put(new Pos(row, col), new CluePos(i, letterIndex));
-            }
-        }
+    ParsedGrid solveCrossword(ParsedGrid parsedGrid, CrosswordGrid crosswordGrid, CrosswordCluesList clues,
+            List<List<CrosswordClueResult>> results, double pruningThreshold, double tolerance, int maxIterations) {
+        CrosswordSolver solver = createSolver(parsedGrid, crosswordGrid, clues, results, pruningThreshold);
+        solver.solve(maxIterations, tolerance);
+        return toSolvedGrid(parsedGrid, solver);
+    }
 
-        double[][][] allLetterProbs = new double[parsedGrid.getNumRows()][parsedGrid.getNumCols()][26];
+    // a solver whose clues are in the same order as the given clues
+    CrosswordSolver createSolver(ParsedGrid parsedGrid, CrosswordGrid crosswordGrid, CrosswordCluesList clues,
+            List<List<CrosswordClueResult>> results, double pruningThreshold) {
+        Map<CrosswordCluePosition, CrosswordBlank> blanks = crosswordGrid.getBlanks().stream()
+                .collect(Collectors.toMap(CrosswordBlank::getPosition, blank -> blank));
+        List<CrosswordBlank> clueBlanks = clues.getClues().stream()
+                .map(clue -> blanks.get(clue.getPosition()))
+                .collect(Collectors.toList());
+        return new CrosswordSolver(dictionaryManager, parsedGrid.getNumRows(), parsedGrid.getNumCols(), clueBlanks,
+            results, pruningThreshold, solverPool);
+    }
+
+    ParsedGrid toSolvedGrid(ParsedGrid parsedGrid, CrosswordSolver solver) {
+        String[][] texts = new String[parsedGrid.getNumRows()][parsedGrid.getNumCols()];
         for (int row = 0; row < parsedGrid.getNumRows(); row++)
-            for (int col = 0; col < parsedGrid.getNumCols(); col++)
+            for (int col = 0; col < parsedGrid.getNumCols(); col++) {
+                int bestLetter = -1;
                 for (int letter = 0; letter < 26; letter++)
-                    allLetterProbs[row][col][letter] = 1. / 26;
-        for (int iteration = 0; iteration < 4; iteration++) {
-            List<List<WordProb>> allWordProbs = new ArrayList<>();
-            for (int i = 0; i < clues.getClues().size(); i++) {
-                CrosswordBlank blank = blanks.get(clues.getClues().get(i).getPosition());
-                int length = blank.getLength();
-
-                List<WordProb> wordProbs = dictionaryManager.getWordsWithLength(length).stream()
-                    .map(word -> {
-                        double prob = 1;
-                        for (int letterIndex = 0; letterIndex < length; letterIndex++) {
-                            int row = blank.getRow();
-                            int col = blank.getCol();
-                            if (blank.getPosition().getOrientation() == CrosswordClueOrientation.ACROSS)
-                                col += letterIndex;
-                            else
-                                row += letterIndex;
-                            prob *= allLetterProbs[row][col][word.charAt(letterIndex) - 'A'];
-                        }
-                        return new WordProb(word, prob);
-                    })
-                    .collect(Collectors.toList());
-                wordProbs.add(new WordProb("*", Math.max(0, 1 - wordProbs.stream().mapToDouble(WordProb::getProb).sum())));
-
-                Map<String, Double> mults = new HashMap<>();
-                for (CrosswordClueResult result : results.get(i))
-                    mults.put(result.getAnswer(), 8 * Math.pow(4, result.getConfidence()));
-                mults.put("*", Math.pow(0.5, length));
-                wordProbs = wordProbs.stream()
-                        .map(wordProb -> new WordProb(wordProb.word, wordProb.prob * mults.getOrDefault(wordProb.word, 1.)))
-                        .collect(Collectors.toList());
-
-                double totalProb = wordProbs.stream().mapToDouble(WordProb::getProb).sum() + 1e-12;
-                wordProbs = wordProbs.stream()
-                    .map(wordProb -> new WordProb(wordProb.word, wordProb.prob / totalProb))
-                    .collect(Collectors.toList());
-                allWordProbs.add(wordProbs);
+                    if (bestLetter == -1
+                            || solver.getLetterProb(row, col, letter) > solver.getLetterProb(row, col, bestLetter))
+                        bestLetter = letter;
+                if (solver.getLetterProb(row, col, bestLetter) > 0.1)
+                    texts[row][col] = String.valueOf((char) (bestLetter + 'A'));
+                else if (solver.getLetterProb(row, col, bestLetter) > 0.05)
+                    texts[row][col] = String.valueOf((char) (bestLetter + 'a'));
+                else
+                    texts[row][col] = "";
             }
+        return withTexts(parsedGrid, texts);
+    }
 
-            for (int row = 0; row < parsedGrid.getNumRows(); row++)
-                for (int col = 0; col < parsedGrid.getNumCols(); col++)
-                    for (int letter = 0; letter < 26; letter++)
-                        allLetterProbs[row][col][letter] = 1;
-            for (int row = 0; row < parsedGrid.getNumRows(); row++)
-                for (int col = 0; col < parsedGrid.getNumCols(); col++) {
-                    Collection<CluePos> cluePoses = allCluePoses.get(new Pos(row, col));
-                    for (CluePos cluePos : cluePoses) {
-                        double[] letterProbs = new double[26];
-                        for (WordProb wordProb : allWordProbs.get(cluePos.clueIndex))
-                            if (wordProb.word.equals("*"))
-                                for (int letter = 0; letter < 26; letter++)
-                                    letterProbs[letter] += wordProb.prob / 26;
-                            else
-                                letterProbs[wordProb.word.charAt(cluePos.letterIndex) - 'A'] += wordProb.prob;
-                        for (int letter = 0; letter < 26; letter++)
-                            allLetterProbs[row][col][letter] *= letterProbs[letter];
+    // complete fills of every blank with dictionary words, best first, with at most the configured number of fills and
+    // time budget
+    List<CrosswordFill> findFills(ParsedGrid parsedGrid, CrosswordGrid crosswordGrid, CrosswordCluesList clues,
+            List<List<CrosswordClueResult>> results, int maxFills, long timeBudgetMillis) {
+        Map<CrosswordCluePosition, List<CrosswordClueResult>> resultsByPosition = new HashMap<>();
+        for (int i = 0; i < clues.getClues().size(); i++)
+            resultsByPosition.put(clues.getClues().get(i).getPosition(), results.get(i));
+        List<CrosswordBlank> blanks = crosswordGrid.getBlanks();
+        CrosswordFiller filler = new CrosswordFiller(dictionaryManager, blanks, blanks.stream()
+            .map(blank -> resultsByPosition.getOrDefault(blank.getPosition(), Collections.emptyList()))
+            .collect(Collectors.toList()));
+        return filler.findFills(Math.min(maxFills, this.maxFills), Math.min(timeBudgetMillis, maxFillTimeBudgetMillis))
+            .stream()
+            .map(fill -> {
+                String[][] texts = new String[parsedGrid.getNumRows()][parsedGrid.getNumCols()];
+                for (String[] rowTexts : texts)
+                    Arrays.fill(rowTexts, "");
+                for (int i = 0; i < blanks.size(); i++) {
+                    CrosswordBlank blank = blanks.get(i);
+                    String word = filler.getWord(i, fill.getWordIndices()[i]);
+                    for (int letterIndex = 0; letterIndex < blank.getLength(); letterIndex++) {
+                        int row = blank.getRow();
+                        int col = blank.getCol();
+                        if (blank.getPosition().getOrientation() == CrosswordClueOrientation.ACROSS)
+                            col += letterIndex;
+                        else
+                            row += letterIndex;
+                        texts[row][col] = String.valueOf(word.charAt(letterIndex));
                     }
                 }
-            for (int row = 0; row < parsedGrid.getNumRows(); row++)
-                for (int col = 0; col < parsedGrid.getNumCols(); col++) {
-                    double totalLetterProb = 0;
-                    for (int letter = 0; letter < 26; letter++)
-                        totalLetterProb += allLetterProbs[row][col][letter];
-                    for (int letter = 0; letter < 26; letter++)
-                        allLetterProbs[row][col][letter] /= totalLetterProb;
-                }
-        }
+                return new CrosswordFill(withTexts(parsedGrid, texts), fill.getScore());
+            })
+            .collect(Collectors.toList());
+    }
+
+    // the dictionary words matching a pattern, in alphabetical order
+    List<String> findWords(WordPattern pattern, int offset, int limit) {
+        return dictionaryAutomaton.search(pattern, offset, limit);
+    }
+
+    private ParsedGrid withTexts(ParsedGrid parsedGrid, String[][] texts) {
         List<ParsedGridSquare> squares = parsedGrid.getSquares().stream()
                 .map(square -> {
-                    int row = square.getRow();
-                    int col = square.getCol();
-                    int bestLetter = -1;
-                    for (int letter = 0; letter < 26; letter++)
-                        if (bestLetter == -1 || allLetterProbs[row][col][letter] > allLetterProbs[row][col][bestLetter])
-                            bestLetter = letter;
-                    String text;
-                    if (allLetterProbs[row][col][bestLetter] > 0.1)
-                        text = String.valueOf((char) (bestLetter + 'A'));
-                    else if (allLetterProbs[row][col][bestLetter] > 0.05)
-                        text = String.valueOf((char) (bestLetter + 'a'));
-                    else
-                        text = "";
-                    ParsedGridSquare newSquare = new ParsedGridSquare(row, col);
+                    ParsedGridSquare newSquare = new ParsedGridSquare(square.getRow(), square.getCol());
                     newSquare.setRgb(square.getRgb());
-                    newSquare.setText(text);
+                    newSquare.setText(texts[square.getRow()][square.getCol()]);
                     newSquare.setRightBorderRgb(square.getRightBorderRgb());
                     newSquare.setBottomBorderRgb(square.getBottomBorderRgb());
                     return newSquare;
@@ -286,43 +286,6 @@ class CrosswordManager {
         }
     }
 
-    private List<CrosswordClueResult> solveClue(String clue, int numLetters) {
-        try {
-            // TODO find website that doesn't rate limit and require waiting 9s between each query
-            Thread.sleep(9000);
-            System.out.println("Solving clue: " + clue);
-
-            URL url = new URL("http://www.wordplays.com/crossword-solver");
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setDoOutput(true);
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Accept",
-                "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8");
-            connection.setRequestProperty("Accept-Language", "en-US,en;q=0.9");
-            connection.setRequestProperty("Cache-Control", "max-age=0");
-            connection.setRequestProperty("Connection", "keep-alive");
-            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            connection.setRequestProperty("User-Agent",
-                "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_12_6) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/62.0.3202.94 Safari/537.36");
-            try (PrintWriter writer = new PrintWriter(connection.getOutputStream())) {
-                writer.print(String.format(
-                    "clue=%1$s&pattern=%2$s&phrase=%1$s&anagram-patt=%2$s&anagram-len=&roman-num=&vand=1&rejected=&cks=&ishm=&mvr=&ty=0",
-                    URLEncoder.encode(clue, "UTF-8"), Joiner.on("").join(Collections.nCopies(numLetters, "?"))));
-            }
-            Element wordList = Jsoup.parse(CharStreams.toString(new InputStreamReader(connection.getInputStream(), "UTF-8")))
-                .getElementById("wordlists");
-            return Streams.concat(wordList.getElementsByClass("even").stream(), wordList.getElementsByClass("odd").stream())
-                .map(row -> {
-                    String answer = Iterables.getOnlyElement(row.getElementsByTag("a")).text();
-                    int numStars = Iterables.getOnlyElement(row.getElementsByClass("stars")).children().size();
-                    return new CrosswordClueResult(answer, numStars);
-                })
-                .collect(Collectors.toList());
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     @Data
     private static class BinaryParsedSquare {
         String text = "";
@@ -330,22 +293,4 @@ class CrosswordManager {
         boolean rightBorderLight = false;
         boolean bottomBorderLight = false;
     }
-
-    @Data
-    private static class Pos {
-        private final int row;
-        private final int col;
-    }
-
-    @Data
-    private static class CluePos {
-        private final int clueIndex;
-        private final int letterIndex;
-    }
-
-    @Data
-    private static class WordProb {
-        private final String word;
-        private final double prob;
-    }
 }
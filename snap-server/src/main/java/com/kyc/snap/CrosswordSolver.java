@@ -0,0 +1,414 @@
+package com.kyc.snap;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+
+// Belief propagation between the letter probabilities of each cell and the word probabilities of each clue, over
+// precomputed primitive arrays so that an iteration doesn't allocate. Within an iteration, the queued clues and then
+// the cells they cross are computed independently on the pool, so the result doesn't depend on the parallelism.
+class CrosswordSolver {
+
+    private static final int CELLS_PER_TASK = 16;
+
+    private final int numRows;
+    private final int numCols;
+    private final int numClues;
+    private final double pruningThreshold;
+    private final ForkJoinPool pool;
+
+    private final WordList[] wordLists;
+    // for each clue, the letters of each dictionary word of its length (see WordList.letters)
+    private final byte[][] words;
+    private final int[] lengths;
+    private final int[] sizes;
+    // the cells of clue i are clueCells[clueCellStarts[i]] to clueCells[clueCellStarts[i] + lengths[i] - 1]
+    private final int[] clueCellStarts;
+    private final int[] clueCells;
+    // the clues through cell c are slotClues[cellSlotStarts[c]] to slotClues[cellSlotStarts[c + 1] - 1]
+    private final int[] cellSlotStarts;
+    private final int[] slotClues;
+    private final int[] slotLetterIndices;
+    // the dictionary words suggested as answers to each clue, and how much more likely they are
+    private final int[][] answerIndices;
+    private final double[][] answerMults;
+    // for each clue, a bitset of the words that can't be its answer, or null if there are none
+    private final long[][] rejected;
+    // the letter each cell must have, or -1
+    private final int[] pinnedLetters;
+    // the probability of each word of each clue, with the last entry for a word not in the dictionary
+    private final double[][] wordProbs;
+    // for each clue, a bitset of the words that are scored if it is pruned
+    private final long[][] candidates;
+    private final boolean[] pruned;
+    // the probability of letter l in cell c is letterProbs[26 * c + l]
+    private final double[] letterProbs;
+    // the clues to score in the next iteration, and the cells to update after scoring them
+    private final int[] clueWorklist;
+    private final boolean[] clueQueued;
+    private int numQueuedClues;
+    private final int[] cellWorklist;
+    private final boolean[] cellQueued;
+    // the largest change in any letter probability of each cell in its last update
+    private final double[] cellChanges;
+
+    CrosswordSolver(DictionaryManager dictionaryManager, int numRows, int numCols, List<CrosswordBlank> blanks,
+            List<List<CrosswordClueResult>> results, double pruningThreshold, ForkJoinPool pool) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.numClues = blanks.size();
+        this.pruningThreshold = pruningThreshold;
+        this.pool = pool;
+
+        wordLists = new WordList[numClues];
+        words = new byte[numClues][];
+        lengths = new int[numClues];
+        sizes = new int[numClues];
+        clueCellStarts = new int[numClues + 1];
+        answerIndices = new int[numClues][];
+        answerMults = new double[numClues][];
+        rejected = new long[numClues][];
+        wordProbs = new double[numClues][];
+        candidates = new long[numClues][];
+        pruned = new boolean[numClues];
+        clueWorklist = new int[numClues];
+        clueQueued = new boolean[numClues];
+        for (int i = 0; i < numClues; i++) {
+            int length = blanks.get(i).getLength();
+            wordLists[i] = dictionaryManager.getWordsWithLength(length);
+            words[i] = wordLists[i].letters();
+            lengths[i] = length;
+            sizes[i] = wordLists[i].size();
+            clueCellStarts[i + 1] = clueCellStarts[i] + length;
+            wordProbs[i] = new double[sizes[i] + 1];
+            candidates[i] = new long[(sizes[i] + 63) / 64];
+            setResults(i, results.get(i));
+        }
+
+        int numCells = numRows * numCols;
+        clueCells = new int[clueCellStarts[numClues]];
+        int[] numSlots = new int[numCells];
+        for (int i = 0; i < numClues; i++) {
+            CrosswordBlank blank = blanks.get(i);
+            for (int letterIndex = 0; letterIndex < lengths[i]; letterIndex++) {
+                int row = blank.getRow();
+                int col = blank.getCol();
+                if (blank.getPosition().getOrientation() == CrosswordClueOrientation.ACROSS)
+                    col += letterIndex;
+                else
+                    row += letterIndex;
+                int cell = row * numCols + col;
+                clueCells[clueCellStarts[i] + letterIndex] = cell;
+                numSlots[cell]++;
+            }
+        }
+        cellSlotStarts = new int[numCells + 1];
+        for (int cell = 0; cell < numCells; cell++)
+            cellSlotStarts[cell + 1] = cellSlotStarts[cell] + numSlots[cell];
+        slotClues = new int[cellSlotStarts[numCells]];
+        slotLetterIndices = new int[cellSlotStarts[numCells]];
+        int[] nextSlots = Arrays.copyOf(cellSlotStarts, numCells);
+        for (int i = 0; i < numClues; i++)
+            for (int letterIndex = 0; letterIndex < lengths[i]; letterIndex++) {
+                int slot = nextSlots[clueCells[clueCellStarts[i] + letterIndex]]++;
+                slotClues[slot] = i;
+                slotLetterIndices[slot] = letterIndex;
+            }
+
+        letterProbs = new double[26 * numCells];
+        Arrays.fill(letterProbs, 1. / 26);
+        pinnedLetters = new int[numCells];
+        Arrays.fill(pinnedLetters, -1);
+        cellWorklist = new int[numCells];
+        cellQueued = new boolean[numCells];
+        cellChanges = new double[numCells];
+    }
+
+    // the following change the solver's inputs, and the next call to solve continues from the current probabilities
+
+    void setResults(int clue, List<CrosswordClueResult> results) {
+        // if an answer is suggested more than once, the last suggestion wins
+        Map<Integer, Double> mults = new LinkedHashMap<>();
+        for (CrosswordClueResult result : results) {
+            int wordIndex = wordLists[clue].indexOf(result.getAnswer());
+            if (wordIndex != -1)
+                mults.put(wordIndex, 8 * Math.pow(4, result.getConfidence()));
+        }
+        mults.put(sizes[clue], Math.pow(0.5, lengths[clue]));
+        answerIndices[clue] = mults.keySet().stream().mapToInt(Integer::intValue).toArray();
+        answerMults[clue] = mults.values().stream().mapToDouble(Double::doubleValue).toArray();
+        queueClue(clue);
+    }
+
+    void rejectAnswer(int clue, String answer) {
+        int wordIndex = wordLists[clue].indexOf(answer);
+        if (wordIndex == -1)
+            return;
+        if (rejected[clue] == null)
+            rejected[clue] = new long[(sizes[clue] + 63) / 64];
+        rejected[clue][wordIndex / 64] |= 1L << wordIndex;
+        queueClue(clue);
+    }
+
+    // letter is from 0 for A to 25 for Z, or -1 to unpin the cell, which then starts over from the uniform prior
+    void pinLetter(int row, int col, int letter) {
+        int cell = row * numCols + col;
+        pinnedLetters[cell] = letter;
+        for (int l = 0; l < 26; l++)
+            letterProbs[26 * cell + l] = letter == -1 ? 1. / 26 : l == letter ? 1 : 0;
+        for (int slot = cellSlotStarts[cell]; slot < cellSlotStarts[cell + 1]; slot++)
+            queueClue(slotClues[slot]);
+    }
+
+    // iterates until no letter probability changes by more than tolerance, each time only rescoring the clues that cross
+    // a cell that did, and returns the number of iterations
+    int solve(int maxIterations, double tolerance) {
+        int iteration = 0;
+        while (iteration < maxIterations && numQueuedClues > 0) {
+            int numCluesToScore = numQueuedClues;
+            for (int i = 0; i < numCluesToScore; i++)
+                clueQueued[clueWorklist[i]] = false;
+            forEachRange(numCluesToScore, 1, (start, end) -> {
+                for (int i = start; i < end; i++)
+                    scoreWords(clueWorklist[i]);
+            });
+
+            int numQueuedCells = 0;
+            for (int i = 0; i < numCluesToScore; i++) {
+                int clue = clueWorklist[i];
+                for (int cellIndex = clueCellStarts[clue]; cellIndex < clueCellStarts[clue + 1]; cellIndex++) {
+                    int cell = clueCells[cellIndex];
+                    if (!cellQueued[cell]) {
+                        cellQueued[cell] = true;
+                        cellWorklist[numQueuedCells++] = cell;
+                    }
+                }
+            }
+            int numCellsToUpdate = numQueuedCells;
+            forEachRange(numCellsToUpdate, CELLS_PER_TASK, (start, end) -> {
+                double[] cellLetterProbs = new double[26];
+                double[] previousLetterProbs = new double[26];
+                for (int i = start; i < end; i++)
+                    updateCell(cellWorklist[i], cellLetterProbs, previousLetterProbs);
+            });
+
+            numQueuedClues = 0;
+            for (int i = 0; i < numCellsToUpdate; i++) {
+                int cell = cellWorklist[i];
+                cellQueued[cell] = false;
+                if (cellChanges[cell] > tolerance)
+                    for (int slot = cellSlotStarts[cell]; slot < cellSlotStarts[cell + 1]; slot++)
+                        queueClue(slotClues[slot]);
+            }
+            iteration++;
+        }
+        return iteration;
+    }
+
+    // whether the cell is a white square of some clue, and so can be pinned
+    boolean isInClue(int row, int col) {
+        if (row < 0 || row >= numRows || col < 0 || col >= numCols)
+            return false;
+        int cell = row * numCols + col;
+        return cellSlotStarts[cell + 1] > cellSlotStarts[cell];
+    }
+
+    // roughly how many bytes the solver's own arrays take, not counting the word lists, which are shared
+    long estimateSize() {
+        long size = 8L * letterProbs.length + 4L * (clueCells.length + 2 * slotClues.length)
+            + 25L * numRows * numCols;
+        for (int i = 0; i < numClues; i++)
+            size += 8L * (wordProbs[i].length + candidates[i].length + (rejected[i] == null ? 0 : rejected[i].length));
+        return size;
+    }
+
+    double getLetterProb(int row, int col, int letter) {
+        return letterProbs[26 * (row * numCols + col) + letter];
+    }
+
+    private void queueClue(int clue) {
+        if (!clueQueued[clue]) {
+            clueQueued[clue] = true;
+            clueWorklist[numQueuedClues++] = clue;
+        }
+    }
+
+    private void scoreWords(int clue) {
+        byte[] words = this.words[clue];
+        int length = lengths[clue];
+        int size = sizes[clue];
+        int cellStart = clueCellStarts[clue];
+        double[] probs = wordProbs[clue];
+        long[] candidates = findCandidates(clue);
+        long[] rejected = this.rejected[clue];
+        if (candidates != null || rejected != null)
+            Arrays.fill(probs, 0);
+
+        double totalWordProb = 0;
+        for (int wordIndex = nextCandidate(candidates, 0); wordIndex < size;
+                wordIndex = nextCandidate(candidates, wordIndex + 1)) {
+            if (rejected != null && (rejected[wordIndex / 64] & (1L << wordIndex)) != 0)
+                continue;
+            double prob = 1;
+            int offset = wordIndex * length;
+            for (int letterIndex = 0; letterIndex < length; letterIndex++)
+                prob *= letterProbs[26 * clueCells[cellStart + letterIndex] + words[offset + letterIndex]];
+            probs[wordIndex] = prob;
+            totalWordProb += prob;
+        }
+        probs[size] = Math.max(0, 1 - totalWordProb);
+
+        for (int i = 0; i < answerIndices[clue].length; i++)
+            probs[answerIndices[clue][i]] *= answerMults[clue][i];
+
+        double totalProb = sum(probs) + 1e-12;
+        for (int wordIndex = 0; wordIndex < probs.length; wordIndex++)
+            probs[wordIndex] /= totalProb;
+    }
+
+    private void updateCell(int cell, double[] cellLetterProbs, double[] previousLetterProbs) {
+        int cellOffset = 26 * cell;
+        System.arraycopy(letterProbs, cellOffset, previousLetterProbs, 0, 26);
+        if (pinnedLetters[cell] != -1) {
+            for (int letter = 0; letter < 26; letter++)
+                letterProbs[cellOffset + letter] = letter == pinnedLetters[cell] ? 1 : 0;
+        } else {
+            for (int letter = 0; letter < 26; letter++)
+                letterProbs[cellOffset + letter] = 1;
+            for (int slot = cellSlotStarts[cell]; slot < cellSlotStarts[cell + 1]; slot++) {
+                int clue = slotClues[slot];
+                int letterIndex = slotLetterIndices[slot];
+                byte[] words = this.words[clue];
+                int length = lengths[clue];
+                int size = sizes[clue];
+                double[] probs = wordProbs[clue];
+                long[] candidates = pruned[clue] ? this.candidates[clue] : null;
+
+                Arrays.fill(cellLetterProbs, 0);
+                for (int wordIndex = nextCandidate(candidates, 0); wordIndex < size;
+                        wordIndex = nextCandidate(candidates, wordIndex + 1))
+                    cellLetterProbs[words[wordIndex * length + letterIndex]] += probs[wordIndex];
+                for (int letter = 0; letter < 26; letter++)
+                    cellLetterProbs[letter] += probs[size] / 26;
+                for (int letter = 0; letter < 26; letter++)
+                    letterProbs[cellOffset + letter] *= cellLetterProbs[letter];
+            }
+
+            double totalLetterProb = 0;
+            for (int letter = 0; letter < 26; letter++)
+                totalLetterProb += letterProbs[cellOffset + letter];
+            for (int letter = 0; letter < 26; letter++)
+                letterProbs[cellOffset + letter] /= totalLetterProb;
+        }
+
+        double change = 0;
+        for (int letter = 0; letter < 26; letter++)
+            change = Math.max(change, Math.abs(letterProbs[cellOffset + letter] - previousLetterProbs[letter]));
+        cellChanges[cell] = change;
+    }
+
+    // the words that agree with every cell of the clue that is at least pruningThreshold certain, or null if every word
+    // should be scored
+    private long[] findCandidates(int clue) {
+        pruned[clue] = false;
+        if (pruningThreshold <= 0)
+            return null;
+        long[] result = candidates[clue];
+        for (int letterIndex = 0; letterIndex < lengths[clue]; letterIndex++) {
+            int cellOffset = 26 * clueCells[clueCellStarts[clue] + letterIndex];
+            int bestLetter = 0;
+            for (int letter = 1; letter < 26; letter++)
+                if (letterProbs[cellOffset + letter] > letterProbs[cellOffset + bestLetter])
+                    bestLetter = letter;
+            if (letterProbs[cellOffset + bestLetter] < pruningThreshold)
+                continue;
+            long[] wordsWithLetter = wordLists[clue].wordsWithLetter(letterIndex, bestLetter);
+            if (!pruned[clue])
+                System.arraycopy(wordsWithLetter, 0, result, 0, result.length);
+            else
+                for (int i = 0; i < result.length; i++)
+                    result[i] &= wordsWithLetter[i];
+            pruned[clue] = true;
+        }
+        if (!pruned[clue])
+            return null;
+        // if the confident letters rule out every word, they are probably wrong, so don't trust them
+        for (long bits : result)
+            if (bits != 0)
+                return result;
+        pruned[clue] = false;
+        return null;
+    }
+
+    private void forEachRange(int size, int rangeSize, RangeAction action) {
+        if (pool.getParallelism() == 1 || size <= rangeSize)
+            action.run(0, size);
+        else
+            pool.invoke(new RangeTask(0, size, rangeSize, action));
+    }
+
+    private static int nextCandidate(long[] candidates, int wordIndex) {
+        if (candidates == null)
+            return wordIndex;
+        int i = wordIndex / 64;
+        if (i >= candidates.length)
+            return Integer.MAX_VALUE;
+        long bits = candidates[i] & (-1L << wordIndex);
+        while (bits == 0) {
+            if (++i == candidates.length)
+                return Integer.MAX_VALUE;
+            bits = candidates[i];
+        }
+        return i * 64 + Long.numberOfTrailingZeros(bits);
+    }
+
+    // Kahan summation, as DoubleStream.sum does
+    private static double sum(double[] values) {
+        double sum = 0;
+        double compensation = 0;
+        for (double value : values) {
+            double adjusted = value - compensation;
+            double newSum = sum + adjusted;
+            compensation = (newSum - sum) - adjusted;
+            sum = newSum;
+        }
+        return sum + compensation;
+    }
+
+    private interface RangeAction {
+        void run(int start, int end);
+    }
+
+    private static class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+        private final int rangeSize;
+        private final RangeAction action;
+
+        RangeTask(int start, int end, int rangeSize, RangeAction action) {
+            this.start = start;
+            this.end = end;
+            this.rangeSize = rangeSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= rangeSize) {
+                action.run(start, end);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new RangeTask(start, mid, rangeSize, action), new RangeTask(mid, end, rangeSize, action));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.kyc.snap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+
+// The text of each square, one line per row (RFC 4180)
+class CsvExporter implements GridExporter {
+
+    private static final Pattern NEEDS_QUOTES = Pattern.compile("[,\"\r\n]");
+
+    @Override
+    public String getFileExtension() {
+        return "csv";
+    }
+
+    @Override
+    public String getMediaType() {
+        return "text/csv";
+    }
+
+    @Override
+    public void export(ExportRequest request, OutputStream output) throws IOException {
+        ParsedGrid parsedGrid = request.getParsedGrid();
+        String[][] texts = new String[parsedGrid.getNumRows()][parsedGrid.getNumCols()];
+        for (ParsedGridSquare square : parsedGrid.getSquares())
+            texts[square.getRow()][square.getCol()] = square.getText();
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        for (String[] rowTexts : texts) {
+            for (int col = 0; col < rowTexts.length; col++) {
+                if (col > 0)
+                    writer.write(',');
+                String text = rowTexts[col] == null ? "" : rowTexts[col];
+                if (NEEDS_QUOTES.matcher(text).find())
+                    writer.write('"' + text.replace("\"", "\"\"") + '"');
+                else
+                    writer.write(text);
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,199 @@
+package com.kyc.snap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The words of a dictionary as a minimized acyclic automaton, where words with common suffixes share states as well as
+// words with common prefixes. Pattern searches walk it together with the pattern's NFA, skipping every subtree where
+// the NFA has no states left.
+class DictionaryAutomaton {
+
+    private final int numWords;
+    // the edges out of state i are firstEdges[i] until firstEdges[i + 1], in order of their letters
+    private final int[] firstEdges;
+    private final byte[] edgeLetters;
+    private final int[] edgeTargets;
+    private final BitSet finalStates;
+
+    DictionaryAutomaton(DictionaryManager dictionaryManager) {
+        List<String> words = new ArrayList<>();
+        for (int length : dictionaryManager.getLengths()) {
+            WordList wordList = dictionaryManager.getWordsWithLength(length);
+            for (int i = 0; i < wordList.size(); i++)
+                words.add(wordList.get(i));
+        }
+        words.sort(null);
+        numWords = words.size();
+
+        // incremental construction from sorted words (Daciuk et al.), where every state except those along the last
+        // word added is already minimized and in the register
+        Map<Node, Node> register = new HashMap<>();
+        Node root = new Node();
+        String prevWord = "";
+        for (String word : words) {
+            if (word.equals(prevWord))
+                continue;
+            Node node = root;
+            int prefixLength = 0;
+            while (prefixLength < word.length() && node.numEdges > 0
+                    && node.letters[node.numEdges - 1] == word.charAt(prefixLength) - 'A') {
+                node = node.targets[node.numEdges - 1];
+                prefixLength++;
+            }
+            if (node.numEdges > 0)
+                replaceOrRegister(node, register);
+            for (int i = prefixLength; i < word.length(); i++)
+                node = node.addEdge((byte) (word.charAt(i) - 'A'));
+            node.isFinal = true;
+            prevWord = word;
+        }
+        if (root.numEdges > 0)
+            replaceOrRegister(root, register);
+
+        Map<Node, Integer> ids = new IdentityHashMap<>();
+        List<Node> nodes = new ArrayList<>();
+        ids.put(root, 0);
+        nodes.add(root);
+        int numEdges = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            numEdges += node.numEdges;
+            for (int edge = 0; edge < node.numEdges; edge++)
+                if (!ids.containsKey(node.targets[edge])) {
+                    ids.put(node.targets[edge], nodes.size());
+                    nodes.add(node.targets[edge]);
+                }
+        }
+        firstEdges = new int[nodes.size() + 1];
+        edgeLetters = new byte[numEdges];
+        edgeTargets = new int[numEdges];
+        finalStates = new BitSet(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            firstEdges[i + 1] = firstEdges[i] + node.numEdges;
+            for (int edge = 0; edge < node.numEdges; edge++) {
+                edgeLetters[firstEdges[i] + edge] = node.letters[edge];
+                edgeTargets[firstEdges[i] + edge] = ids.get(node.targets[edge]);
+            }
+            if (node.isFinal)
+                finalStates.set(i);
+        }
+    }
+
+    int numWords() {
+        return numWords;
+    }
+
+    int numStates() {
+        return firstEdges.length - 1;
+    }
+
+    int numEdges() {
+        return edgeTargets.length;
+    }
+
+    // the matching words in alphabetical order, skipping the first offset matches
+    List<String> search(WordPattern pattern, int offset, int limit) {
+        Search search = new Search(pattern, offset, limit);
+        search.search(0, pattern.start());
+        return search.words;
+    }
+
+    private static void replaceOrRegister(Node node, Map<Node, Node> register) {
+        Node child = node.targets[node.numEdges - 1];
+        if (child.numEdges > 0)
+            replaceOrRegister(child, register);
+        Node equivalent = register.putIfAbsent(child, child);
+        if (equivalent != null)
+            node.targets[node.numEdges - 1] = equivalent;
+    }
+
+    private class Search {
+
+        private final WordPattern pattern;
+        private final int limit;
+        private final List<String> words = new ArrayList<>();
+        private final StringBuilder prefix = new StringBuilder();
+        // the states known to have no matches, for each set of NFA states, since shared suffixes are reached again
+        // by many prefixes
+        private final Map<BitSet, BitSet> deadStates = new HashMap<>();
+        private int toSkip;
+
+        Search(WordPattern pattern, int offset, int limit) {
+            this.pattern = pattern;
+            this.toSkip = offset;
+            this.limit = limit;
+        }
+
+        // returns whether any word from this state matches
+        boolean search(int state, BitSet patternStates) {
+            BitSet dead = deadStates.get(patternStates);
+            if (dead != null && dead.get(state))
+                return false;
+            boolean found = false;
+            if (finalStates.get(state) && pattern.matches(patternStates)) {
+                found = true;
+                if (toSkip > 0)
+                    toSkip--;
+                else if (words.size() < limit)
+                    words.add(prefix.toString());
+            }
+            for (int edge = firstEdges[state]; edge < firstEdges[state + 1] && words.size() < limit; edge++) {
+                BitSet nextPatternStates = pattern.step(patternStates, edgeLetters[edge]);
+                if (nextPatternStates.isEmpty())
+                    continue;
+                prefix.append((char) ('A' + edgeLetters[edge]));
+                found |= search(edgeTargets[edge], nextPatternStates);
+                prefix.setLength(prefix.length() - 1);
+            }
+            if (!found)
+                deadStates.computeIfAbsent(patternStates, key -> new BitSet()).set(state);
+            return found;
+        }
+    }
+
+    // a state during construction, equal to another state if they have the same letters to the same states
+    private static class Node {
+
+        private byte[] letters = new byte[0];
+        private Node[] targets = new Node[0];
+        private int numEdges;
+        private boolean isFinal;
+
+        Node addEdge(byte letter) {
+            if (numEdges == letters.length) {
+                letters = Arrays.copyOf(letters, Math.max(2 * numEdges, 1));
+                targets = Arrays.copyOf(targets, letters.length);
+            }
+            letters[numEdges] = letter;
+            targets[numEdges] = new Node();
+            return targets[numEdges++];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Node))
+                return false;
+            Node other = (Node) o;
+            if (isFinal != other.isFinal || numEdges != other.numEdges)
+                return false;
+            for (int edge = 0; edge < numEdges; edge++)
+                if (letters[edge] != other.letters[edge] || targets[edge] != other.targets[edge])
+                    return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = isFinal ? 1 : 0;
+            for (int edge = 0; edge < numEdges; edge++)
+                hash = 31 * (31 * hash + letters[edge]) + System.identityHashCode(targets[edge]);
+            return hash;
+        }
+    }
+}
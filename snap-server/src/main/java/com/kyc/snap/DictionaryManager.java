@@ -2,32 +2,93 @@ package com.kyc.snap;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import com.google.common.io.Files;
 
+/**
+ * Compiled dictionaries are laid out as:
+ *
+ * <pre>
+ * int magic, int version, int numLengths,
+ * numLengths * (int length, int numWords, int offset),
+ * for each length, numWords sorted words of exactly that many uppercase ASCII letters
+ * </pre>
+ */
 class DictionaryManager {
 
-    private final Map<Integer, Set<String>> wordsByLength;
+    private static final int MAGIC = 0x534e4150; // "SNAP"
+    private static final int VERSION = 1;
 
-    private DictionaryManager(Map<Integer, Set<String>> wordsByLength) {
+    private final Map<Integer, WordList> wordsByLength;
+
+    private DictionaryManager(Map<Integer, WordList> wordsByLength) {
         this.wordsByLength = wordsByLength;
     }
 
-    Set<String> getWordsWithLength(int length) {
-        return wordsByLength.get(length);
+    WordList getWordsWithLength(int length) {
+        return wordsByLength.getOrDefault(length, new WordList(ByteBuffer.allocate(0), length, 0));
+    }
+
+    Set<Integer> getLengths() {
+        return Collections.unmodifiableSet(wordsByLength.keySet());
+    }
+
+    static DictionaryManager map(String compiledDictionaryFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(compiledDictionaryFile, "r")) {
+            // the mapping stays valid after the file is closed
+            return from(file.getChannel().map(MapMode.READ_ONLY, 0, file.length()));
+        }
     }
 
-    static DictionaryManager load(String... dictionaryFiles) throws IOException {
-        Map<Integer, Set<String>> wordsByLength = new HashMap<>();
+    static ByteBuffer compile(String... dictionaryFiles) throws IOException {
+        Map<Integer, SortedSet<String>> wordsByLength = new TreeMap<>();
         for (String file : dictionaryFiles)
             for (String line : Files.readLines(new File(file), StandardCharsets.UTF_8)) {
-                wordsByLength.computeIfAbsent(line.length(), length -> new HashSet<>()).add(line.toUpperCase());
+                String word = line.toUpperCase();
+                if (!word.isEmpty() && word.chars().allMatch(c -> c >= 'A' && c <= 'Z'))
+                    wordsByLength.computeIfAbsent(word.length(), length -> new TreeSet<>()).add(word);
             }
+
+        int headerSize = 12 + 12 * wordsByLength.size();
+        int dataSize = wordsByLength.entrySet().stream().mapToInt(entry -> entry.getKey() * entry.getValue().size()).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + dataSize);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(wordsByLength.size());
+        int offset = headerSize;
+        for (Map.Entry<Integer, SortedSet<String>> entry : wordsByLength.entrySet()) {
+            buffer.putInt(entry.getKey()).putInt(entry.getValue().size()).putInt(offset);
+            offset += entry.getKey() * entry.getValue().size();
+        }
+        for (SortedSet<String> words : wordsByLength.values())
+            for (String word : words)
+                buffer.put(word.getBytes(StandardCharsets.US_ASCII));
+        buffer.flip();
+        return buffer;
+    }
+
+    private static DictionaryManager from(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Not a compiled dictionary");
+        Map<Integer, WordList> wordsByLength = new HashMap<>();
+        int numLengths = buffer.getInt(8);
+        for (int i = 0; i < numLengths; i++) {
+            int length = buffer.getInt(12 + 12 * i);
+            int numWords = buffer.getInt(16 + 12 * i);
+            int offset = buffer.getInt(20 + 12 * i);
+            ByteBuffer words = buffer.duplicate();
+            words.position(offset).limit(offset + length * numWords);
+            wordsByLength.put(length, new WordList(words.slice(), length, numWords));
+        }
         return new DictionaryManager(wordsByLength);
     }
 }
@@ -0,0 +1,16 @@
+package com.kyc.snap;
+
+import lombok.Data;
+
+@Data
+public class ExportRequest {
+
+    static final String DEFAULT_TITLE = "Snap";
+
+    private final ParsedGrid parsedGrid;
+
+    // required for the crossword formats, ipuz and puz
+    private CrosswordGrid crosswordGrid;
+    private CrosswordCluesList clues;
+    private String title = DEFAULT_TITLE;
+}
@@ -6,4 +6,7 @@ import lombok.Data;
 public class ExportToGoogleSheetsRequest {
 
     private final ParsedGrid parsedGrid;
+
+    // the title of the new spreadsheet
+    private String title = "Snap";
 }
@@ -5,18 +5,25 @@ import java.awt.image.BufferedImage;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Permission;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.SheetsScopes;
 import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetRequest;
@@ -27,146 +34,351 @@ import com.google.api.services.sheets.v4.model.Color;
 import com.google.api.services.sheets.v4.model.DimensionProperties;
 import com.google.api.services.sheets.v4.model.DimensionRange;
 import com.google.api.services.sheets.v4.model.ExtendedValue;
+import com.google.api.services.sheets.v4.model.GridCoordinate;
+import com.google.api.services.sheets.v4.model.GridProperties;
 import com.google.api.services.sheets.v4.model.GridRange;
 import com.google.api.services.sheets.v4.model.Request;
 import com.google.api.services.sheets.v4.model.RowData;
+import com.google.api.services.sheets.v4.model.Sheet;
+import com.google.api.services.sheets.v4.model.SheetProperties;
 import com.google.api.services.sheets.v4.model.Spreadsheet;
+import com.google.api.services.sheets.v4.model.SpreadsheetProperties;
 import com.google.api.services.sheets.v4.model.UpdateBordersRequest;
 import com.google.api.services.sheets.v4.model.UpdateCellsRequest;
 import com.google.api.services.sheets.v4.model.UpdateDimensionPropertiesRequest;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.vision.v1.AnnotateImageRequest;
-import com.google.cloud.vision.v1.BatchAnnotateImagesResponse;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
 import com.google.cloud.vision.v1.EntityAnnotation;
 import com.google.cloud.vision.v1.Feature;
 import com.google.cloud.vision.v1.Feature.Type;
 import com.google.cloud.vision.v1.Image;
 import com.google.cloud.vision.v1.ImageAnnotatorClient;
 import com.google.cloud.vision.v1.ImageAnnotatorSettings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
+import com.kyc.snap.ParseGridRequest.TextDetectionMode;
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
 
-class GoogleAPIManager {
+import io.dropwizard.lifecycle.Managed;
+import lombok.Data;
+
+class GoogleAPIManager implements Managed {
 
     private static final String APPLICATION_NAME = "Snap";
     private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
     private static final int TEXT_DETECTION_IMAGE_LIMIT = 16; // https://cloud.google.com/vision/quotas
+    private static final int MOSAIC_IMAGE_LIMIT = 100;
+    private static final int EXPORT_SHEET_ID = 0;
     private static final Feature TEXT_DETECTION_FEATURE = Feature.newBuilder().setType(Type.TEXT_DETECTION).build();
 
-    private Sheets sheets;
-    private ImageAnnotatorSettings imageAnnotatorSettings;
+    private final Sheets sheets;
+    private final Drive drive;
+    private final TextAnnotator textAnnotator;
+    private final String shareExportsWith;
+    private final String shareExportsRole;
+    private final ExecutorService encodingExecutor;
+    private final ExecutorService textDetectionExecutor;
+
+    GoogleAPIManager(String credentialsFile, int maxConcurrentTextDetectionRequests, String shareExportsWith,
+            String shareExportsRole) {
+        this(newSheets(credentialsFile), newDrive(credentialsFile), newTextAnnotator(credentialsFile),
+            maxConcurrentTextDetectionRequests, shareExportsWith, shareExportsRole);
+    }
+
+    GoogleAPIManager(Sheets sheets, Drive drive, TextAnnotator textAnnotator, int maxConcurrentTextDetectionRequests,
+            String shareExportsWith, String shareExportsRole) {
+        this.sheets = sheets;
+        this.drive = drive;
+        this.textAnnotator = textAnnotator;
+        this.shareExportsWith = shareExportsWith;
+        this.shareExportsRole = shareExportsRole;
+        encodingExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("image-encoding-%d").setDaemon(true).build());
+        textDetectionExecutor = Executors.newFixedThreadPool(maxConcurrentTextDetectionRequests,
+            new ThreadFactoryBuilder().setNameFormat("text-detection-%d").setDaemon(true).build());
+    }
 
-    GoogleAPIManager(String credentialsFile) {
+    private static Sheets newSheets(String credentialsFile) {
         try {
-            HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            GoogleCredential credential = GoogleCredential.fromStream(new FileInputStream(credentialsFile))
-                .createScoped(ImmutableSet.of(SheetsScopes.DRIVE));
-            sheets = new Sheets.Builder(httpTransport, JSON_FACTORY, credential)
+            return new Sheets.Builder(GoogleNetHttpTransport.newTrustedTransport(), JSON_FACTORY,
+                newCredential(credentialsFile))
                 .setApplicationName(APPLICATION_NAME)
                 .build();
-            GoogleCredentials credentials = GoogleCredentials.fromStream(new FileInputStream(credentialsFile));
-            imageAnnotatorSettings = ImageAnnotatorSettings.newBuilder()
-                .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
-                .build();
         } catch (IOException | GeneralSecurityException e) {
             throw new RuntimeException(e);
         }
     }
 
-    Map<BufferedImage, String> batchFindText(List<BufferedImage> images) {
-        try (ImageAnnotatorClient client = ImageAnnotatorClient.create(imageAnnotatorSettings)) {
-            Map<BufferedImage, String> result = new HashMap<>();
-            for (List<BufferedImage> partition : Iterables.partition(images, TEXT_DETECTION_IMAGE_LIMIT)) {
-                BatchAnnotateImagesResponse response = client.batchAnnotateImages(partition.stream()
-                    .map(image -> AnnotateImageRequest.newBuilder()
-                        .addFeatures(TEXT_DETECTION_FEATURE)
-                        .setImage(Image.newBuilder().setContent(ByteString.copyFrom(ImageUtils.toBytes(image))).build())
-                        .build())
-                        .collect(Collectors.toList()));
-                List<String> texts = response.getResponsesList().stream()
-                        .map(res -> res.getTextAnnotationsList().stream()
-                            .map(EntityAnnotation::getDescription)
-                            .max((s1, s2) -> Integer.compare(s1.length(), s2.length()))
-                            .orElse(""))
-                        .collect(Collectors.toList());
-                for (int i = 0; i < partition.size(); i++)
-                    result.put(partition.get(i), texts.get(i));
-            }
-            return result;
-        } catch (Exception e) {
+    private static Drive newDrive(String credentialsFile) {
+        try {
+            return new Drive.Builder(GoogleNetHttpTransport.newTrustedTransport(), JSON_FACTORY,
+                newCredential(credentialsFile))
+                .setApplicationName(APPLICATION_NAME)
+                .build();
+        } catch (IOException | GeneralSecurityException e) {
             throw new RuntimeException(e);
         }
     }
 
-    String exportToGoogleSheets(ParsedGrid parsedGrid) {
+    private static GoogleCredential newCredential(String credentialsFile) throws IOException {
+        return GoogleCredential.fromStream(new FileInputStream(credentialsFile))
+            .createScoped(ImmutableSet.of(SheetsScopes.DRIVE));
+    }
+
+    private static TextAnnotator newTextAnnotator(String credentialsFile) {
         try {
-            // TODO create new sheet
-            Spreadsheet spreadsheet = sheets.spreadsheets().get("1n2XG8kgi-XZoD1n5jZoW4UbIFI99U2l0Uc_9SQPb8TA").execute();
-            int sheetId = 0;
+            GoogleCredentials credentials = GoogleCredentials.fromStream(new FileInputStream(credentialsFile));
+            ImageAnnotatorClient imageAnnotatorClient = ImageAnnotatorClient.create(ImageAnnotatorSettings.newBuilder()
+                .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
+                .build());
+            return new TextAnnotator() {
 
-            sheets.spreadsheets()
-                .batchUpdate(spreadsheet.getSpreadsheetId(), new BatchUpdateSpreadsheetRequest()
-                    .setRequests(ImmutableList.of(new Request()
-                        .setUpdateCells(new UpdateCellsRequest()
-                            .setFields("userEnteredFormat,userEnteredValue")
-                            .setRange(new GridRange()
-                                .setSheetId(sheetId))), new Request()
-                        .setUpdateDimensionProperties(new UpdateDimensionPropertiesRequest()
-                            .setProperties(new DimensionProperties()
-                                .setPixelSize(40))
-                            .setFields("pixelSize")
-                            .setRange(new DimensionRange()
-                                .setSheetId(sheetId)
-                                .setDimension("COLUMNS"))))))
-                .execute();
+                @Override
+                public List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests) {
+                    return imageAnnotatorClient.batchAnnotateImages(requests).getResponsesList();
+                }
+
+                @Override
+                public void close() {
+                    try {
+                        imageAnnotatorClient.close();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws Exception {
+        encodingExecutor.shutdown();
+        textDetectionExecutor.shutdown();
+        textAnnotator.close();
+    }
 
+    // onTextsFound is called, possibly concurrently, with the index of the first image and the texts of each batch as it
+    // completes
+    List<String> batchFindText(List<BufferedImage> images, TextDetectionMode mode,
+            BiConsumer<Integer, List<String>> onTextsFound) {
+        if (mode == TextDetectionMode.MOSAIC) {
+            List<TextMosaic> mosaics = Lists.partition(images, MOSAIC_IMAGE_LIMIT).stream()
+                .map(TextMosaic::of)
+                .collect(Collectors.toList());
+            List<AnnotateImageResponse> responses = batchAnnotateImages(mosaics.stream()
+                .map(TextMosaic::getImage)
+                .collect(Collectors.toList()), (start, partition) -> {
+                    for (int i = 0; i < partition.size(); i++)
+                        onTextsFound.accept((start + i) * MOSAIC_IMAGE_LIMIT,
+                            mosaics.get(start + i).toTexts(partition.get(i).getTextAnnotationsList()));
+                });
+            List<String> result = new ArrayList<>();
+            for (int i = 0; i < mosaics.size(); i++)
+                result.addAll(mosaics.get(i).toTexts(responses.get(i).getTextAnnotationsList()));
+            return result;
+        }
+        List<AnnotateImageResponse> responses = batchAnnotateImages(images,
+            (start, partition) -> onTextsFound.accept(start, toTexts(partition)));
+        return toTexts(responses);
+    }
+
+    // exports to a new spreadsheet, shared with the configured user or domain (as a reader by default) if there is one,
+    // and returns its URL
+    String exportToGoogleSheets(ParsedGrid parsedGrid, String title) {
+        try {
+            Spreadsheet spreadsheet = sheets.spreadsheets()
+                .create(new Spreadsheet()
+                    .setProperties(new SpreadsheetProperties()
+                        .setTitle(title))
+                    .setSheets(ImmutableList.of(new Sheet()
+                        .setProperties(new SheetProperties()
+                            .setSheetId(EXPORT_SHEET_ID)
+                            .setGridProperties(new GridProperties()
+                                .setRowCount(parsedGrid.getNumRows())
+                                .setColumnCount(parsedGrid.getNumCols()))))))
+                .setFields("spreadsheetId,spreadsheetUrl")
+                .execute();
+            // the new spreadsheet belongs to the service account, so only it can see the spreadsheet unless it's shared
+            if (shareExportsWith != null) {
+                Permission permission = shareExportsWith.contains("@")
+                    ? new Permission().setType("user").setEmailAddress(shareExportsWith)
+                    : new Permission().setType("domain").setDomain(shareExportsWith);
+                drive.permissions()
+                    .create(spreadsheet.getSpreadsheetId(), permission.setRole(shareExportsRole))
+                    .execute();
+            }
             sheets.spreadsheets()
                 .batchUpdate(spreadsheet.getSpreadsheetId(), new BatchUpdateSpreadsheetRequest()
-                    .setRequests(parsedGrid.getSquares().stream()
-                        .flatMap(square -> {
-                            GridRange range = new GridRange()
-                                .setSheetId(sheetId)
-                                .setStartRowIndex(square.getRow())
-                                .setEndRowIndex(square.getRow() + 1)
-                                .setStartColumnIndex(square.getCol())
-                                .setEndColumnIndex(square.getCol() + 1);
-                            Request updateCellsRequest = new Request()
-                                .setUpdateCells(new UpdateCellsRequest()
-                                    .setRows(ImmutableList.of(new RowData()
-                                        .setValues(ImmutableList.of(new CellData()
-                                            .setUserEnteredFormat(new CellFormat()
-                                                .setBackgroundColor(toColor(square.getRgb())))
-                                            .setUserEnteredValue(new ExtendedValue()
-                                                .setStringValue(square.getText()))))))
-                                    .setFields("userEnteredFormat.backgroundColor,userEnteredValue.stringValue")
-                                    .setRange(range));
-                            Request updateBordersRequest = new Request()
-                                .setUpdateBorders(new UpdateBordersRequest()
-                                    .setRight(new Border()
-                                        .setStyle("SOLID")
-                                        .setColor(toColor(square.getRightBorderRgb())))
-                                    .setBottom(new Border()
-                                        .setStyle("SOLID")
-                                        .setColor(toColor(square.getBottomBorderRgb())))
-                                    .setRange(range));
-                            return Stream.of(updateCellsRequest, updateBordersRequest);
-                        })
-                        .collect(Collectors.toList())))
+                    .setRequests(toExportRequests(parsedGrid, EXPORT_SHEET_ID)))
                 .execute();
-
             return spreadsheet.getSpreadsheetUrl();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private Color toColor(int rgb) {
+    // one request with every cell, and one request for each block of squares with the same borders, where blocks are
+    // runs of adjacent squares in a row, stacked over the rows below with the same runs
+    static List<Request> toExportRequests(ParsedGrid parsedGrid, int sheetId) {
+        int numRows = parsedGrid.getNumRows();
+        int numCols = parsedGrid.getNumCols();
+        ParsedGridSquare[][] squares = new ParsedGridSquare[numRows][numCols];
+        for (ParsedGridSquare square : parsedGrid.getSquares())
+            squares[square.getRow()][square.getCol()] = square;
+
+        List<Request> requests = new ArrayList<>();
+        requests.add(new Request()
+            .setUpdateDimensionProperties(new UpdateDimensionPropertiesRequest()
+                .setProperties(new DimensionProperties()
+                    .setPixelSize(40))
+                .setFields("pixelSize")
+                .setRange(new DimensionRange()
+                    .setSheetId(sheetId)
+                    .setDimension("COLUMNS"))));
+
+        List<RowData> rows = new ArrayList<>();
+        for (int row = 0; row < numRows; row++) {
+            List<CellData> cells = new ArrayList<>();
+            for (int col = 0; col < numCols; col++) {
+                ParsedGridSquare square = squares[row][col];
+                cells.add(square == null ? new CellData() : new CellData()
+                    .setUserEnteredFormat(new CellFormat()
+                        .setBackgroundColor(toColor(square.getRgb())))
+                    .setUserEnteredValue(new ExtendedValue()
+                        .setStringValue(square.getText())));
+            }
+            rows.add(new RowData().setValues(cells));
+        }
+        requests.add(new Request()
+            .setUpdateCells(new UpdateCellsRequest()
+                .setRows(rows)
+                .setFields("userEnteredFormat.backgroundColor,userEnteredValue.stringValue")
+                .setStart(new GridCoordinate()
+                    .setSheetId(sheetId)
+                    .setRowIndex(0)
+                    .setColumnIndex(0))));
+
+        // blocks that reach the previous row, by their start column
+        Map<Integer, BorderBlock> openBlocks = new HashMap<>();
+        List<BorderBlock> blocks = new ArrayList<>();
+        for (int row = 0; row < numRows; row++) {
+            Map<Integer, BorderBlock> newOpenBlocks = new HashMap<>();
+            int col = 0;
+            while (col < numCols) {
+                if (squares[row][col] == null) {
+                    col++;
+                    continue;
+                }
+                int rightBorderRgb = squares[row][col].getRightBorderRgb();
+                int bottomBorderRgb = squares[row][col].getBottomBorderRgb();
+                int endCol = col + 1;
+                while (endCol < numCols && squares[row][endCol] != null
+                        && squares[row][endCol].getRightBorderRgb() == rightBorderRgb
+                        && squares[row][endCol].getBottomBorderRgb() == bottomBorderRgb)
+                    endCol++;
+                BorderBlock block = openBlocks.get(col);
+                if (block != null && block.endCol == endCol && block.rightBorderRgb == rightBorderRgb
+                        && block.bottomBorderRgb == bottomBorderRgb)
+                    block.numRows++;
+                else {
+                    block = new BorderBlock(row, col, endCol, rightBorderRgb, bottomBorderRgb);
+                    blocks.add(block);
+                }
+                newOpenBlocks.put(col, block);
+                col = endCol;
+            }
+            openBlocks = newOpenBlocks;
+        }
+        for (BorderBlock block : blocks) {
+            Border rightBorder = new Border()
+                .setStyle("SOLID")
+                .setColor(toColor(block.rightBorderRgb));
+            Border bottomBorder = new Border()
+                .setStyle("SOLID")
+                .setColor(toColor(block.bottomBorderRgb));
+            requests.add(new Request()
+                .setUpdateBorders(new UpdateBordersRequest()
+                    .setRight(rightBorder)
+                    .setInnerVertical(rightBorder)
+                    .setBottom(bottomBorder)
+                    .setInnerHorizontal(bottomBorder)
+                    .setRange(new GridRange()
+                        .setSheetId(sheetId)
+                        .setStartRowIndex(block.startRow)
+                        .setEndRowIndex(block.startRow + block.numRows)
+                        .setStartColumnIndex(block.startCol)
+                        .setEndColumnIndex(block.endCol))));
+        }
+        return requests;
+    }
+
+    private List<String> toTexts(List<AnnotateImageResponse> responses) {
+        return responses.stream()
+            .map(res -> res.getTextAnnotationsList().stream()
+                .map(EntityAnnotation::getDescription)
+                .max((s1, s2) -> Integer.compare(s1.length(), s2.length()))
+                .orElse(""))
+            .collect(Collectors.toList());
+    }
+
+    private List<AnnotateImageResponse> batchAnnotateImages(List<BufferedImage> images,
+            BiConsumer<Integer, List<AnnotateImageResponse>> onPartitionAnnotated) {
+        // partitions are encoded and sent concurrently, at most maxConcurrentTextDetectionRequests at a time
+        List<List<BufferedImage>> imagePartitions = Lists.partition(images, TEXT_DETECTION_IMAGE_LIMIT);
+        List<CompletableFuture<List<AnnotateImageResponse>>> partitions = IntStream.range(0, imagePartitions.size())
+            .mapToObj(partitionIndex -> CompletableFuture
+                .supplyAsync(() -> imagePartitions.get(partitionIndex).stream()
+                    .map(image -> AnnotateImageRequest.newBuilder()
+                        .addFeatures(TEXT_DETECTION_FEATURE)
+                        .setImage(Image.newBuilder().setContent(ByteString.copyFrom(ImageUtils.toBytes(image))).build())
+                        .build())
+                    .collect(Collectors.toList()), encodingExecutor)
+                .thenApplyAsync(textAnnotator::annotate, textDetectionExecutor)
+                .thenApply(responses -> {
+                    onPartitionAnnotated.accept(partitionIndex * TEXT_DETECTION_IMAGE_LIMIT, responses);
+                    return responses;
+                }))
+            .collect(Collectors.toList());
+        try {
+            List<AnnotateImageResponse> result = new ArrayList<>();
+            for (CompletableFuture<List<AnnotateImageResponse>> partition : partitions)
+                result.addAll(partition.join());
+            return result;
+        } catch (CompletionException e) {
+            partitions.forEach(partition -> partition.cancel(true));
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static Color toColor(int rgb) {
         java.awt.Color color = new java.awt.Color(rgb);
         return new Color()
             .setRed(color.getRed() / 255f)
             .setGreen(color.getGreen() / 255f)
             .setBlue(color.getBlue() / 255f);
     }
+
+    @Data
+    private static class BorderBlock {
+
+        private final int startRow;
+        private final int startCol;
+        private final int endCol;
+        private final int rightBorderRgb;
+        private final int bottomBorderRgb;
+
+        private int numRows = 1;
+    }
 }
@@ -1,5 +1,6 @@
 package com.kyc.snap;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import lombok.Data;
@@ -10,6 +11,11 @@ public class Grid {
     private final List<GridRow> rows;
     private final List<GridCol> cols;
 
+    // rows and columns are immutable, so only the lists need copying
+    static Grid copyOf(Grid grid) {
+        return new Grid(new ArrayList<>(grid.rows), new ArrayList<>(grid.cols));
+    }
+
     @Data
     public static class GridRow {
 
@@ -0,0 +1,14 @@
+package com.kyc.snap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Writes a grid in a file format straight to an output stream, without any network calls
+interface GridExporter {
+
+    String getFileExtension();
+
+    String getMediaType();
+
+    void export(ExportRequest request, OutputStream output) throws IOException;
+}
@@ -12,4 +12,5 @@ public class GridifyRequest {
     private int houghThreshold = 32;
     private int houghMinLineLength = 16;
     private int minDistBetweenGridLines = 16;
+    private boolean pyramid = false;
 }
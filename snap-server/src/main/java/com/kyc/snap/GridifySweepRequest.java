@@ -0,0 +1,28 @@
+package com.kyc.snap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.Data;
+
+@Data
+public class GridifySweepRequest {
+
+    private final byte[] data;
+
+    private List<GridifyRequest> parameterSets = new ArrayList<>();
+    private ParameterValues parameterValues;
+
+    @Data
+    public static class ParameterValues {
+
+        private List<Integer> cannyThreshold1 = ImmutableList.of(60);
+        private List<Integer> cannyThreshold2 = ImmutableList.of(180);
+        private List<Integer> houghThreshold = ImmutableList.of(32);
+        private List<Integer> houghMinLineLength = ImmutableList.of(16);
+        private List<Integer> minDistBetweenGridLines = ImmutableList.of(16);
+        private List<Boolean> pyramid = ImmutableList.of(false);
+    }
+}
@@ -0,0 +1,37 @@
+package com.kyc.snap;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class GridifySweepResult {
+
+    private final List<GridifySweepEntry> entries;
+
+    @Data
+    public static class GridifySweepEntry {
+
+        private final GridifyParameters parameters;
+        private final Grid grid;
+        private final double regularityScore;
+    }
+
+    // the parameters of a GridifyRequest, without the image
+    @Data
+    public static class GridifyParameters {
+
+        private final int cannyThreshold1;
+        private final int cannyThreshold2;
+        private final int houghThreshold;
+        private final int houghMinLineLength;
+        private final int minDistBetweenGridLines;
+        private final boolean pyramid;
+
+        static GridifyParameters of(GridifyRequest request) {
+            return new GridifyParameters(request.getCannyThreshold1(), request.getCannyThreshold2(),
+                request.getHoughThreshold(), request.getHoughMinLineLength(), request.getMinDistBetweenGridLines(),
+                request.isPyramid());
+        }
+    }
+}
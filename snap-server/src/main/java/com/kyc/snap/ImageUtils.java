@@ -8,12 +8,20 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 import javax.imageio.ImageIO;
 import javax.ws.rs.BadRequestException;
@@ -21,11 +29,15 @@ import javax.ws.rs.BadRequestException;
 import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.Range;
 import org.opencv.core.TermCriteria;
 import org.opencv.imgproc.Imgproc;
 
 import com.kyc.snap.Grid.GridCol;
 import com.kyc.snap.Grid.GridRow;
+import com.kyc.snap.ParseGridRequest.ClusteringMode;
+import com.kyc.snap.ParseGridRequest.TextDetectionMode;
+import com.kyc.snap.ParseGridProgress.Stage;
 import com.kyc.snap.ParsedGrid.ParsedGridSquare;
 
 import jersey.repackaged.com.google.common.base.Preconditions;
@@ -34,6 +46,9 @@ import nu.pattern.OpenCV;
 
 class ImageUtils {
 
+    private static final int PYRAMID_MIN_SIZE = 512;
+    private static final long CLUSTERING_SEED = 0;
+
     static void load() {
         OpenCV.loadShared();
         System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
@@ -58,24 +73,181 @@ class ImageUtils {
     }
 
     static Grid findGrid(BufferedImage image, int cannyThreshold1, int cannyThreshold2, int houghThreshold, double houghMinLineLength,
-            int minDistBetweenGridLines) {
-        Mat mat = toMat(image);
-        Mat edges = canny(mat, cannyThreshold1, cannyThreshold2);
-        Mat lines = hough(edges, houghThreshold, houghMinLineLength);
+            int minDistBetweenGridLines, boolean pyramid) {
+        Mat mat = MatConverter.toBgrMat(image);
+        int scale = pyramid ? pyramidScale(mat) : 1;
+        Mat searchMat = downscale(mat, scale);
+        return findGrid(mat, scale, canny(searchMat, cannyThreshold1, cannyThreshold2), cannyThreshold1,
+            cannyThreshold2, houghThreshold, houghMinLineLength, minDistBetweenGridLines);
+    }
+
+    static List<Grid> findGrids(BufferedImage image, List<GridifyRequest> parameterSets, ExecutorService executor) {
+        Mat mat = MatConverter.toBgrMat(image);
+        int pyramidScale = pyramidScale(mat);
+        Mat pyramidMat = parameterSets.stream().anyMatch(GridifyRequest::isPyramid) ? downscale(mat, pyramidScale) : mat;
+
+        // parameter sets with the same Canny thresholds share one edge map
+        Map<List<Object>, Future<Mat>> edges = new HashMap<>();
+        for (GridifyRequest params : parameterSets) {
+            Mat searchMat = params.isPyramid() ? pyramidMat : mat;
+            edges.computeIfAbsent(edgesKey(params), key -> executor.submit(
+                () -> canny(searchMat, params.getCannyThreshold1(), params.getCannyThreshold2())));
+        }
+        List<Future<Grid>> grids = new ArrayList<>();
+        try {
+            for (GridifyRequest params : parameterSets) {
+                Mat searchEdges = edges.get(edgesKey(params)).get();
+                grids.add(executor.submit(() -> findGrid(
+                    mat,
+                    params.isPyramid() ? pyramidScale : 1,
+                    searchEdges,
+                    params.getCannyThreshold1(),
+                    params.getCannyThreshold2(),
+                    params.getHoughThreshold(),
+                    params.getHoughMinLineLength(),
+                    params.getMinDistBetweenGridLines())));
+            }
+            List<Grid> result = new ArrayList<>();
+            for (Future<Grid> grid : grids)
+                result.add(grid.get());
+            return result;
+        } catch (InterruptedException | ExecutionException e) {
+            edges.values().forEach(edgeMap -> edgeMap.cancel(true));
+            grids.forEach(grid -> grid.cancel(true));
+            throw new RuntimeException(e);
+        }
+    }
+
+    // 1 for a grid whose rows all have the same height and whose columns all have the same width, and lower the more
+    // the sizes vary
+    static double regularityScore(Grid grid) {
+        // a single row or column is trivially regular, but it's never the grid we're looking for
+        if (grid.getRows().size() < 2 || grid.getCols().size() < 2)
+            return 0;
+        return 1 / (1 + coefficientOfVariation(grid.getRows().stream().mapToInt(GridRow::getHeight).toArray())
+                + coefficientOfVariation(grid.getCols().stream().mapToInt(GridCol::getWidth).toArray()));
+    }
+
+    static ParsedGrid parseGrid(BufferedImage image, Grid grid, int numClusters, ClusteringMode clusteringMode,
+            double crosswordThreshold, TextDetectionMode textDetectionMode, GoogleAPIManager googleAPIManager,
+            CrosswordManager crosswordManager, ExecutorService executor, Consumer<ParseGridProgress> onProgress) {
+        ColorSampler sampler = ColorSampler.of(image);
+        List<Future<List<GridSquare>>> rowBands = new ArrayList<>();
+        for (int i = 0; i < grid.getRows().size(); i++) {
+            int rowIndex = i;
+            rowBands.add(executor.submit(() -> parseGridRow(image, sampler, grid, rowIndex)));
+        }
+        List<GridSquare> squares = new ArrayList<>();
+        try {
+            for (Future<List<GridSquare>> rowBand : rowBands)
+                squares.addAll(rowBand.get());
+        } catch (InterruptedException | ExecutionException e) {
+            rowBands.forEach(rowBand -> rowBand.cancel(true));
+            throw new RuntimeException(e);
+        }
+
+        ColorClusters squareRgbClusters = cluster(squares.stream()
+            .mapToInt(GridSquare::getRgb)
+            .filter(rgb -> rgb != -1)
+            .toArray(), numClusters, clusteringMode);
+        ColorClusters borderRgbClusters = cluster(squares.stream()
+            .flatMapToInt(square -> IntStream.of(square.rightBorderRgb, square.bottomBorderRgb))
+            .filter(rgb -> rgb != -1)
+            .toArray(), numClusters, clusteringMode);
+
+        List<ParsedGridSquare> parsedSquares = new ArrayList<>();
+        for (GridSquare square : squares) {
+            ParsedGridSquare parsedSquare = new ParsedGridSquare(square.row, square.col);
+            parsedSquare.setRgb(squareRgbClusters.get(square.rgb, -1));
+            parsedSquare.setRightBorderRgb(borderRgbClusters.get(square.rightBorderRgb, -1));
+            parsedSquare.setBottomBorderRgb(borderRgbClusters.get(square.bottomBorderRgb, -1));
+            parsedSquares.add(parsedSquare);
+        }
+        onProgress.accept(new ParseGridProgress(Stage.COLORS,
+            new ParsedGrid(grid.getRows().size(), grid.getCols().size(), parsedSquares)));
+
+        List<BufferedImage> squareImages = squares.stream().map(GridSquare::getImage).collect(Collectors.toList());
+        List<String> texts = findTexts(squareImages, textDetectionMode, googleAPIManager, (indices, foundTexts) -> {
+            List<ParsedGridSquare> foundSquares = new ArrayList<>();
+            for (int i = 0; i < indices.size(); i++) {
+                ParsedGridSquare parsedSquare = parsedSquares.get(indices.get(i));
+                ParsedGridSquare foundSquare = new ParsedGridSquare(parsedSquare.getRow(), parsedSquare.getCol());
+                foundSquare.setRgb(parsedSquare.getRgb());
+                foundSquare.setText(foundTexts.get(i));
+                foundSquare.setRightBorderRgb(parsedSquare.getRightBorderRgb());
+                foundSquare.setBottomBorderRgb(parsedSquare.getBottomBorderRgb());
+                foundSquares.add(foundSquare);
+            }
+            onProgress.accept(new ParseGridProgress(Stage.TEXT,
+                new ParsedGrid(grid.getRows().size(), grid.getCols().size(), foundSquares)));
+        });
+        for (int i = 0; i < parsedSquares.size(); i++)
+            parsedSquares.get(i).setText(texts.get(i));
+        ParsedGrid parsedGrid = new ParsedGrid(grid.getRows().size(), grid.getCols().size(), parsedSquares);
+        return crosswordManager.toCrosswordGrid(parsedGrid, crosswordThreshold)
+            .map(crosswordGrid -> crosswordManager.toParsedGrid(parsedGrid, crosswordGrid))
+            .orElse(parsedGrid);
+    }
+
+    static boolean isLight(int rgb) {
+        Color color = new Color(rgb);
+        return color.getRed() + color.getGreen() + color.getBlue() > 3 * 128;
+    }
+
+    private static List<GridSquare> parseGridRow(BufferedImage image, ColorSampler sampler, Grid grid, int i) {
+        List<GridSquare> squares = new ArrayList<>();
+        GridRow row = grid.getRows().get(i);
+        for (int j = 0; j < grid.getCols().size(); j++) {
+            GridCol col = grid.getCols().get(j);
+            GridSquare square = new GridSquare(i, j);
+            square.rgb = sampler.averageRgb(col.getStartX(), row.getStartY(), col.getWidth(), row.getHeight());
+            square.image = toBinaryImage(image.getSubimage(col.getStartX(), row.getStartY(), col.getWidth(), row.getHeight()));
+            if (i + 1 < grid.getRows().size()) {
+                square.bottomBorderRgb = sampler.averageRgb(col.getStartX(), row.getStartY() + row.getHeight(),
+                    col.getWidth(), grid.getRows().get(i + 1).getStartY() - (row.getStartY() + row.getHeight()));
+            }
+            if (j + 1 < grid.getCols().size()) {
+                square.rightBorderRgb = sampler.averageRgb(col.getStartX() + col.getWidth(), row.getStartY(),
+                    grid.getCols().get(j + 1).getStartX() - (col.getStartX() + col.getWidth()), row.getHeight());
+            }
+            squares.add(square);
+        }
+        return squares;
+    }
 
+    private static Grid findGrid(Mat mat, int scale, Mat searchEdges, int cannyThreshold1, int cannyThreshold2,
+            int houghThreshold, double houghMinLineLength, int minDistBetweenGridLines) {
         List<Integer> xs = new ArrayList<>();
         List<Integer> ys = new ArrayList<>();
-        for (int i = 0; i < lines.rows(); i++) {
-            double[] data = lines.get(i, 0);
-            boolean vertical = data[0] == data[2];
-            boolean horizontal = data[1] == data[3];
-            Preconditions.checkArgument(horizontal != vertical,
-                "Expected horizontal or vertical line but got (%s, %s), (%s, %s)",
-                data[0], data[1], data[2], data[3]);
-            if (vertical)
-                xs.add((int) data[0]);
-            else
-                ys.add((int) data[1]);
+        if (scale == 1) {
+            Mat lines = hough(searchEdges, houghThreshold, houghMinLineLength);
+            for (int i = 0; i < lines.rows(); i++) {
+                double[] data = lines.get(i, 0);
+                if (isVertical(data))
+                    xs.add((int) data[0]);
+                else
+                    ys.add((int) data[1]);
+            }
+        } else {
+            // the lines found on the downscaled image are only candidates, each one is refined in a narrow full-size strip
+            Mat lines = hough(searchEdges, Math.max(houghThreshold / scale, 1), houghMinLineLength / scale);
+            int minEdgePixels = (int) Math.max(houghThreshold, houghMinLineLength);
+            for (int i = 0; i < lines.rows(); i++) {
+                double[] data = lines.get(i, 0);
+                if (isVertical(data)) {
+                    int x = (int) data[0] * scale;
+                    Range along = new Range(
+                        Math.max((int) Math.min(data[1], data[3]) * scale, 0),
+                        Math.min(((int) Math.max(data[1], data[3]) + 1) * scale, mat.rows()));
+                    refineGridLine(mat, along, x, scale, cannyThreshold1, cannyThreshold2, minEdgePixels, true, xs);
+                } else {
+                    int y = (int) data[1] * scale;
+                    Range along = new Range(
+                        Math.max((int) Math.min(data[0], data[2]) * scale, 0),
+                        Math.min(((int) Math.max(data[0], data[2]) + 1) * scale, mat.cols()));
+                    refineGridLine(mat, along, y, scale, cannyThreshold1, cannyThreshold2, minEdgePixels, false, ys);
+                }
+            }
         }
 
         Collections.sort(xs);
@@ -91,69 +263,92 @@ class ImageUtils {
         return new Grid(rows, cols);
     }
 
-    static ParsedGrid parseGrid(BufferedImage image, Grid grid, int numClusters, double crosswordThreshold,
-            GoogleAPIManager googleAPIManager, CrosswordManager crosswordManager) {
-        List<GridSquare> squares = new ArrayList<>();
-        for (int i = 0; i < grid.getRows().size(); i++)
-            for (int j = 0; j < grid.getCols().size(); j++) {
-                GridRow row = grid.getRows().get(i);
-                GridCol col = grid.getCols().get(j);
-                GridSquare square = new GridSquare(i, j);
-                square.rgb = averageRgbs(image, col.getStartX(), row.getStartY(), col.getWidth(), row.getHeight());
-                square.image = toBinaryImage(image.getSubimage(col.getStartX(), row.getStartY(), col.getWidth(), row.getHeight()));
-                if (i + 1 < grid.getRows().size()) {
-                    square.bottomBorderRgb = averageRgbs(image, col.getStartX(), row.getStartY() + row.getHeight(),
-                        col.getWidth(), grid.getRows().get(i + 1).getStartY() - (row.getStartY() + row.getHeight()));
-                }
-                if (j + 1 < grid.getCols().size()) {
-                    square.rightBorderRgb = averageRgbs(image, col.getStartX() + col.getWidth(), row.getStartY(),
-                        grid.getCols().get(j + 1).getStartX() - (col.getStartX() + col.getWidth()), row.getHeight());
-                }
-                squares.add(square);
-            }
+    private static int pyramidScale(Mat mat) {
+        int scale = 1;
+        while (mat.cols() / scale >= 2 * PYRAMID_MIN_SIZE && mat.rows() / scale >= 2 * PYRAMID_MIN_SIZE)
+            scale *= 2;
+        return scale;
+    }
 
-        Map<Integer, Integer> squareRgbClusters = cluster(squares.stream()
-            .map(GridSquare::getRgb)
-            .filter(rgb -> rgb != -1)
-            .collect(Collectors.toList()), numClusters);
-        Map<BufferedImage, String> texts = googleAPIManager.batchFindText(squares.stream()
-            .map(GridSquare::getImage)
-            .collect(Collectors.toList()));
-        Map<Integer, Integer> borderRgbClusters = cluster(squares.stream()
-            .flatMap(square -> Stream.of(square.rightBorderRgb, square.bottomBorderRgb))
-            .filter(rgb -> rgb != -1)
-            .collect(Collectors.toList()), numClusters);
-
-        List<ParsedGridSquare> parsedSquares = squares.stream()
-                .map(square -> {
-                    ParsedGridSquare parsedSquare = new ParsedGridSquare(square.row, square.col);
-                    parsedSquare.setRgb(squareRgbClusters.get(square.rgb));
-                    parsedSquare.setText(texts.get(square.image));
-                    parsedSquare.setRightBorderRgb(borderRgbClusters.getOrDefault(square.rightBorderRgb, -1));
-                    parsedSquare.setBottomBorderRgb(borderRgbClusters.getOrDefault(square.bottomBorderRgb, -1));
-                    return parsedSquare;
-                })
-                .collect(Collectors.toList());
-        ParsedGrid parsedGrid = new ParsedGrid(grid.getRows().size(), grid.getCols().size(), parsedSquares);
-        return crosswordManager.toCrosswordGrid(parsedGrid, crosswordThreshold)
-            .map(crosswordGrid -> crosswordManager.toParsedGrid(parsedGrid, crosswordGrid))
-            .orElse(parsedGrid);
+    private static Mat downscale(Mat mat, int scale) {
+        Mat small = mat;
+        for (int i = 1; i < scale; i *= 2) {
+            Mat smaller = new Mat();
+            Imgproc.pyrDown(small, smaller);
+            small = smaller;
+        }
+        return small;
     }
 
-    static boolean isLight(int rgb) {
-        Color color = new Color(rgb);
-        return color.getRed() + color.getGreen() + color.getBlue() > 3 * 128;
+    private static List<Object> edgesKey(GridifyRequest params) {
+        return Arrays.asList(params.getCannyThreshold1(), params.getCannyThreshold2(), params.isPyramid());
     }
 
-    private static Mat toMat(BufferedImage image) {
-        BufferedImage newImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-        for (int x = 0; x < image.getWidth(); x++)
-            for (int y = 0; y < image.getHeight(); y++)
-                newImage.setRGB(x, y, image.getRGB(x, y));
-        Mat mat = new Mat(image.getHeight(), image.getWidth(), CvType.CV_8UC3);
-        byte[] data = ((DataBufferByte) newImage.getRaster().getDataBuffer()).getData();
-        mat.put(0, 0, data);
-        return mat;
+    private static double coefficientOfVariation(int[] values) {
+        double mean = Arrays.stream(values).average().getAsDouble();
+        double variance = Arrays.stream(values).mapToDouble(value -> (value - mean) * (value - mean)).average().getAsDouble();
+        return Math.sqrt(variance) / mean;
+    }
+
+    private static void refineGridLine(Mat mat, Range along, int position, int scale, int cannyThreshold1,
+            int cannyThreshold2, int minEdgePixels, boolean vertical, List<Integer> positions) {
+        int size = vertical ? mat.cols() : mat.rows();
+        // pad the strip so that the Canny kernel sees real pixels around every candidate position
+        int padding = 2;
+        int start = Math.max(position - scale - padding, 0);
+        int end = Math.min(position + scale + padding + 1, size);
+        if (along.empty() || start >= end)
+            return;
+        Mat strip = vertical ? mat.submat(along, new Range(start, end)) : mat.submat(new Range(start, end), along);
+        Mat edgeCounts = new Mat();
+        Core.reduce(canny(strip, cannyThreshold1, cannyThreshold2), edgeCounts, vertical ? 0 : 1, Core.REDUCE_SUM,
+            CvType.CV_32S);
+
+        for (int i = Math.max(position - scale, start); i <= Math.min(position + scale, end - 1); i++) {
+            int edgePixels = (int) edgeCounts.get(vertical ? 0 : i - start, vertical ? i - start : 0)[0] / 255;
+            if (edgePixels >= minEdgePixels)
+                positions.add(i);
+        }
+    }
+
+    private static boolean isVertical(double[] line) {
+        boolean vertical = line[0] == line[2];
+        boolean horizontal = line[1] == line[3];
+        Preconditions.checkArgument(horizontal != vertical,
+            "Expected horizontal or vertical line but got (%s, %s), (%s, %s)",
+            line[0], line[1], line[2], line[3]);
+        return vertical;
+    }
+
+    // onTextsFound is called, possibly concurrently, with the indices of images and their texts as they are found
+    static List<String> findTexts(List<BufferedImage> binaryImages, TextDetectionMode textDetectionMode,
+            GoogleAPIManager googleAPIManager, BiConsumer<List<Integer>, List<String>> onTextsFound) {
+        // images of a single color have no text, and identical images are only sent once
+        List<String> texts = new ArrayList<>(Collections.nCopies(binaryImages.size(), ""));
+        Map<BinaryImageKey, List<Integer>> uniqueImageIndices = new LinkedHashMap<>();
+        for (int i = 0; i < binaryImages.size(); i++) {
+            BufferedImage image = binaryImages.get(i);
+            int inkPixels = countInkPixels(image);
+            if (inkPixels > 0 && inkPixels < image.getWidth() * image.getHeight())
+                uniqueImageIndices.computeIfAbsent(BinaryImageKey.of(image), key -> new ArrayList<>()).add(i);
+        }
+        List<List<Integer>> uniqueImages = new ArrayList<>(uniqueImageIndices.values());
+        List<String> uniqueTexts = googleAPIManager.batchFindText(uniqueImages.stream()
+            .map(indices -> binaryImages.get(indices.get(0)))
+            .collect(Collectors.toList()), textDetectionMode, (start, foundTexts) -> {
+                List<Integer> foundIndices = new ArrayList<>();
+                List<String> foundSquareTexts = new ArrayList<>();
+                for (int i = 0; i < foundTexts.size(); i++)
+                    for (int index : uniqueImages.get(start + i)) {
+                        foundIndices.add(index);
+                        foundSquareTexts.add(foundTexts.get(i));
+                    }
+                onTextsFound.accept(foundIndices, foundSquareTexts);
+            });
+        for (int i = 0; i < uniqueImages.size(); i++)
+            for (int index : uniqueImages.get(i))
+                texts.set(index, uniqueTexts.get(i));
+        return texts;
     }
 
     private static Mat canny(Mat image, int threshold1, int threshold2) {
@@ -168,29 +363,19 @@ class ImageUtils {
         return lines;
     }
 
-    private static int averageRgbs(BufferedImage image, int startX, int startY, int width, int height) {
-        long sumRed = 0, sumGreen = 0, sumBlue = 0, numRgbs = 0;
-        for (int x = startX; x < startX + width; x++)
-            for (int y = startY; y < startY + height; y++) {
-                AdjustedRGB adjusted = AdjustedRGB.from(image.getRGB(x, y));
-                sumRed += adjusted.getRedSquared();
-                sumGreen += adjusted.getGreenSquared();
-                sumBlue += adjusted.getBlueSquared();
-                numRgbs++;
-            }
-        if (numRgbs == 0)
-            return -1;
-        return new AdjustedRGB(sumRed / numRgbs, sumGreen / numRgbs, sumBlue / numRgbs).toRGB();
-    }
+    static ColorClusters cluster(int[] rgbs, int numClusters, ClusteringMode clusteringMode) {
+        if (clusteringMode == ClusteringMode.HISTOGRAM)
+            return ColorQuantizer.cluster(rgbs, numClusters, CLUSTERING_SEED);
 
-    private static Map<Integer, Integer> cluster(List<Integer> rgbs, int numClusters) {
-        Mat data = new Mat(rgbs.size(), 3, CvType.CV_32F);
-        for (int i = 0; i < rgbs.size(); i++) {
-            AdjustedRGB adjusted = AdjustedRGB.from(rgbs.get(i));
-            data.put(i, 0, adjusted.getRedSquared());
-            data.put(i, 1, adjusted.getGreenSquared());
-            data.put(i, 2, adjusted.getBlueSquared());
+        Mat data = new Mat(rgbs.length, 3, CvType.CV_32F);
+        float[] adjustedRgbs = new float[3 * rgbs.length];
+        for (int i = 0; i < rgbs.length; i++) {
+            AdjustedRGB adjusted = AdjustedRGB.from(rgbs[i]);
+            adjustedRgbs[3 * i] = adjusted.getRedSquared();
+            adjustedRgbs[3 * i + 1] = adjusted.getGreenSquared();
+            adjustedRgbs[3 * i + 2] = adjusted.getBlueSquared();
         }
+        data.put(0, 0, adjustedRgbs);
 
         Mat labels = new Mat();
         Mat centers = new Mat();
@@ -205,15 +390,17 @@ class ImageUtils {
             centerRGBs.add(adjusted.toRGB());
         }
 
-        Map<Integer, Integer> clusters = new HashMap<>();
-        for (int i = 0; i < rgbs.size(); i++) {
+        Map<Integer, Integer> clusters = new TreeMap<>();
+        for (int i = 0; i < rgbs.length; i++) {
             int label = (int) labels.get(i, 0)[0];
-            clusters.put(rgbs.get(i), centerRGBs.get(label));
+            clusters.put(rgbs[i], centerRGBs.get(label));
         }
-        return clusters;
+        return new ColorClusters(
+            clusters.keySet().stream().mapToInt(rgb -> rgb).toArray(),
+            clusters.values().stream().mapToInt(rgb -> rgb).toArray());
     }
 
-    private static BufferedImage toBinaryImage(BufferedImage image) {
+    static BufferedImage toBinaryImage(BufferedImage image) {
         BufferedImage binaryImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_BINARY);
         for (int x = 0; x < image.getWidth(); x++)
             for (int y = 0; y < image.getHeight(); y++)
@@ -221,6 +408,14 @@ class ImageUtils {
         return binaryImage;
     }
 
+    private static int countInkPixels(BufferedImage binaryImage) {
+        // unused bits at the end of each row are always 0, so only the white pixels are counted
+        int whitePixels = 0;
+        for (byte b : ((DataBufferByte) binaryImage.getRaster().getDataBuffer()).getData())
+            whitePixels += Integer.bitCount(b & 0xff);
+        return binaryImage.getWidth() * binaryImage.getHeight() - whitePixels;
+    }
+
     @Data
     private static class GridSquare {
         private final int row;
@@ -232,6 +427,18 @@ class ImageUtils {
         private int bottomBorderRgb;
     }
 
+    @Data
+    private static class BinaryImageKey {
+        private final int width;
+        private final int height;
+        private final byte[] pixels;
+
+        static BinaryImageKey of(BufferedImage binaryImage) {
+            return new BinaryImageKey(binaryImage.getWidth(), binaryImage.getHeight(),
+                ((DataBufferByte) binaryImage.getRaster().getDataBuffer()).getData());
+        }
+    }
+
     private ImageUtils() {
     }
 }
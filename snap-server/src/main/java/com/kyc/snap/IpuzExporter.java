@@ -0,0 +1,91 @@
+package com.kyc.snap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+
+// http://www.ipuz.org/
+class IpuzExporter implements GridExporter {
+
+    private static final String BLOCK = "#";
+
+    private final JsonFactory jsonFactory;
+
+    IpuzExporter(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "ipuz";
+    }
+
+    @Override
+    public String getMediaType() {
+        return "application/x-ipuz+json";
+    }
+
+    @Override
+    public void export(ExportRequest request, OutputStream output) throws IOException {
+        CrosswordLayout layout = new CrosswordLayout(request);
+        try (JsonGenerator generator = jsonFactory.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeStringField("version", "http://ipuz.org/v2");
+            generator.writeArrayFieldStart("kind");
+            generator.writeString("http://ipuz.org/crossword#1");
+            generator.writeEndArray();
+            generator.writeStringField("title", request.getTitle());
+            generator.writeObjectFieldStart("dimensions");
+            generator.writeNumberField("width", layout.numCols);
+            generator.writeNumberField("height", layout.numRows);
+            generator.writeEndObject();
+
+            generator.writeArrayFieldStart("puzzle");
+            for (int row = 0; row < layout.numRows; row++) {
+                generator.writeStartArray();
+                for (int col = 0; col < layout.numCols; col++)
+                    if (layout.blocks[row][col])
+                        generator.writeString(BLOCK);
+                    else
+                        generator.writeNumber(layout.numbers[row][col]);
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("solution");
+            for (int row = 0; row < layout.numRows; row++) {
+                generator.writeStartArray();
+                for (int col = 0; col < layout.numCols; col++)
+                    if (layout.blocks[row][col])
+                        generator.writeString(BLOCK);
+                    else if (layout.letters[row][col].isEmpty())
+                        generator.writeNull();
+                    else
+                        generator.writeString(layout.letters[row][col]);
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+
+            generator.writeObjectFieldStart("clues");
+            for (CrosswordClueOrientation orientation : CrosswordClueOrientation.values()) {
+                generator.writeArrayFieldStart(orientation == CrosswordClueOrientation.ACROSS ? "Across" : "Down");
+                for (CrosswordBlank blank : layout.blanks)
+                    if (blank.getPosition().getOrientation() == orientation) {
+                        generator.writeStartArray();
+                        generator.writeNumber(Integer.parseInt(blank.getPosition().getNumber()));
+                        generator.writeString(layout.getClue(blank));
+                        generator.writeEndArray();
+                    }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.kyc.snap;
+
+import lombok.Data;
+
+@Data
+public class Job {
+
+    private final String id;
+    private final JobType type;
+    private final JobState state;
+    private final Object result;
+    private final String error;
+
+    public enum JobType {
+        GRIDIFY,
+        PARSE_GRID,
+        SOLVE_CROSSWORD,
+    }
+
+    public enum JobState {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+    }
+}
@@ -0,0 +1,149 @@
+package com.kyc.snap;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.WebApplicationException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.kyc.snap.Job.JobState;
+import com.kyc.snap.Job.JobType;
+import com.kyc.snap.SnapConfiguration.JobPoolConfiguration;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+class JobManager implements Managed {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int MAX_FINISHED_JOBS = 1024;
+
+    private final Map<JobType, ExecutorService> executors = new EnumMap<>(JobType.class);
+    private final long maxWaitMillis;
+    // unfinished jobs are already bounded by the pools' threads and queues, so they're kept until they finish, and
+    // only finished jobs are evicted
+    private final Map<String, PendingJob> unfinishedJobs = new ConcurrentHashMap<>();
+    private final Cache<String, PendingJob> finishedJobs = CacheBuilder.newBuilder()
+        .maximumSize(MAX_FINISHED_JOBS)
+        .expireAfterWrite(1, TimeUnit.HOURS)
+        .build();
+
+    JobManager(Map<JobType, JobPoolConfiguration> pools, Duration maxWait) {
+        for (JobType type : JobType.values()) {
+            JobPoolConfiguration pool = pools.get(type);
+            executors.put(type, new ThreadPoolExecutor(pool.getThreads(), pool.getThreads(), 0, TimeUnit.MILLISECONDS,
+                pool.getQueueCapacity() > 0 ? new ArrayBlockingQueue<>(pool.getQueueCapacity()) : new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat(type.name().toLowerCase() + "-job-%d").setDaemon(true).build()));
+        }
+        this.maxWaitMillis = maxWait.toMilliseconds();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        executors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    Job submit(JobType type, Supplier<?> task) {
+        String id = UUID.randomUUID().toString();
+        PendingJob job = new PendingJob(type);
+        unfinishedJobs.put(id, job);
+        job.future.whenComplete((result, e) -> {
+            finishedJobs.put(id, job);
+            unfinishedJobs.remove(id);
+        });
+        try {
+            execute(job, task);
+        } catch (WebApplicationException e) {
+            unfinishedJobs.remove(id);
+            throw e;
+        }
+        return job.toJob(id);
+    }
+
+    // runs the task on its job type's pool and waits for it, so that it shares that pool's limits
+    @SuppressWarnings("unchecked")
+    <T> T run(JobType type, Supplier<T> task) {
+        PendingJob job = new PendingJob(type);
+        execute(job, task);
+        try {
+            return (T) job.future.join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // waits at most the configured maximum, however long the caller asks for
+    Job get(String id, long waitMillis) {
+        PendingJob job = unfinishedJobs.get(id);
+        if (job == null)
+            job = finishedJobs.getIfPresent(id);
+        if (job == null)
+            throw new NotFoundException("No job with id " + id);
+        if (waitMillis > 0)
+            try {
+                job.future.get(Math.min(waitMillis, maxWaitMillis), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                // the job's state is reported below
+            }
+        return job.toJob(id);
+    }
+
+    private void execute(PendingJob job, Supplier<?> task) {
+        try {
+            executors.get(job.type).execute(() -> {
+                job.running = true;
+                try {
+                    job.future.complete(task.get());
+                } catch (Throwable e) {
+                    job.future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new WebApplicationException("Too many queued " + job.type + " jobs", TOO_MANY_REQUESTS);
+        }
+    }
+
+    private static class PendingJob {
+        private final JobType type;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private volatile boolean running = false;
+
+        PendingJob(JobType type) {
+            this.type = type;
+        }
+
+        Job toJob(String id) {
+            if (!future.isDone())
+                return new Job(id, type, running ? JobState.RUNNING : JobState.QUEUED, null, null);
+            try {
+                return new Job(id, type, JobState.SUCCEEDED, future.join(), null);
+            } catch (CompletionException e) {
+                return new Job(id, type, JobState.FAILED, null, String.valueOf(e.getCause().getMessage()));
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.kyc.snap;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.custom.CustomAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import io.dropwizard.lifecycle.Managed;
+
+// Looks up clues in a local corpus of tab-separated clue and answer lines, indexed in-process with the same analysis as
+// the crossword_clue field type of solr/conf/schema.xml. The index records a hash of the corpus it was built from, and
+// is rebuilt at startup if the corpus has changed since.
+class LuceneClueProvider implements ClueProvider, Managed {
+
+    private static final String CLUE_FIELD = "clue";
+    private static final String ANSWER_FIELD = "answer";
+    private static final String LENGTH_FIELD = "length";
+    private static final String CORPUS_HASH_KEY = "corpusHash";
+    private static final int MAX_HITS = 50;
+    private static final int MAX_CONFIDENCE = 5;
+
+    private final Analyzer analyzer;
+    private final Directory directory;
+    private final DirectoryReader reader;
+    private final IndexSearcher searcher;
+
+    LuceneClueProvider(String corpusFile, String indexDirectory, String analyzerConfigDirectory) {
+        try {
+            analyzer = CustomAnalyzer.builder(Paths.get(analyzerConfigDirectory))
+                .withTokenizer("whitespace")
+                .addTokenFilter("asciiFolding", "preserveOriginal", "true")
+                .addTokenFilter("synonymGraph", "synonyms", "synonyms.txt", "ignoreCase", "true")
+                .addTokenFilter("lowercase")
+                .addTokenFilter("hyphenatedWords")
+                .addTokenFilter("wordDelimiterGraph",
+                    "splitOnCaseChange", "0",
+                    "splitOnNumerics", "0",
+                    "catenateWords", "1",
+                    "preserveOriginal", "1",
+                    "stemEnglishPossessive", "0",
+                    "types", "wdftypes.txt")
+                .addTokenFilter("flattenGraph")
+                .build();
+            directory = FSDirectory.open(Paths.get(indexDirectory));
+            String corpusHash = Files.asByteSource(new File(corpusFile)).hash(Hashing.sha256()).toString();
+            if (!DirectoryReader.indexExists(directory)
+                    || !corpusHash.equals(SegmentInfos.readLatestCommit(directory).getUserData().get(CORPUS_HASH_KEY)))
+                buildIndex(corpusFile, corpusHash);
+            reader = DirectoryReader.open(directory);
+            searcher = new IndexSearcher(reader);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws Exception {
+        reader.close();
+        directory.close();
+        analyzer.close();
+    }
+
+    @Override
+    public List<CrosswordClueResult> solveClue(String clue, int numLetters) {
+        Query clueQuery = new QueryBuilder(analyzer).createBooleanQuery(CLUE_FIELD, clue);
+        if (clueQuery == null)
+            return new ArrayList<>();
+        Query query = new BooleanQuery.Builder()
+            .add(clueQuery, Occur.MUST)
+            .add(IntPoint.newExactQuery(LENGTH_FIELD, numLetters), Occur.FILTER)
+            .build();
+        try {
+            TopDocs topDocs = searcher.search(query, MAX_HITS);
+            // the best hit for each answer, scaled so that the best hit overall has the maximum confidence
+            Map<String, CrosswordClueResult> results = new LinkedHashMap<>();
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                String answer = searcher.doc(scoreDoc.doc).get(ANSWER_FIELD);
+                int confidence = Math.round(MAX_CONFIDENCE * scoreDoc.score / topDocs.getMaxScore());
+                results.putIfAbsent(answer, new CrosswordClueResult(answer, confidence));
+            }
+            return new ArrayList<>(results.values());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void buildIndex(String corpusFile, String corpusHash) throws IOException {
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(OpenMode.CREATE));
+                BufferedReader corpus = Files.newReader(new File(corpusFile), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = corpus.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length < 2)
+                    continue;
+                String answer = parts[1].toUpperCase().replaceAll("[^A-Z]", "");
+                if (answer.isEmpty())
+                    continue;
+                Document document = new Document();
+                document.add(new TextField(CLUE_FIELD, parts[0], Store.NO));
+                document.add(new StoredField(ANSWER_FIELD, answer));
+                document.add(new IntPoint(LENGTH_FIELD, answer.length()));
+                writer.addDocument(document);
+            }
+            writer.setLiveCommitData(ImmutableMap.of(CORPUS_HASH_KEY, corpusHash).entrySet());
+        }
+    }
+}
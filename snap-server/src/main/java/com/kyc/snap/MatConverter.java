@@ -0,0 +1,101 @@
+package com.kyc.snap;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+class MatConverter {
+
+    static Mat toBgrMat(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] bgr;
+        if (!isUnshared(image))
+            bgr = fromRgbs(image.getRGB(0, 0, width, height, null, 0, width));
+        else
+            switch (image.getType()) {
+                case BufferedImage.TYPE_INT_RGB:
+                case BufferedImage.TYPE_INT_ARGB:
+                    bgr = fromRgbs(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+                    break;
+                case BufferedImage.TYPE_3BYTE_BGR:
+                    bgr = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+                    break;
+                case BufferedImage.TYPE_4BYTE_ABGR:
+                    bgr = fromAbgrs(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+                    break;
+                case BufferedImage.TYPE_BYTE_GRAY:
+                    bgr = fromGrays(((DataBufferByte) image.getRaster().getDataBuffer()).getData(), image.getColorModel());
+                    break;
+                default:
+                    bgr = fromRgbs(image.getRGB(0, 0, width, height, null, 0, width));
+            }
+        Mat mat = new Mat(height, width, CvType.CV_8UC3);
+        mat.put(0, 0, bgr);
+        return mat;
+    }
+
+    // the backing array can only be read directly if it holds exactly this image's pixels, e.g. not for a subimage
+    private static boolean isUnshared(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getNumBanks() != 1 || raster.getDataBuffer().getOffset() != 0)
+            return false;
+        if (raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+            return ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == image.getWidth();
+        if (raster.getSampleModel() instanceof ComponentSampleModel) {
+            ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+            return sampleModel.getScanlineStride() == image.getWidth() * sampleModel.getPixelStride();
+        }
+        return false;
+    }
+
+    private static byte[] fromRgbs(int[] rgbs) {
+        byte[] bgr = new byte[rgbs.length * 3];
+        for (int i = 0, j = 0; i < rgbs.length; i++) {
+            int rgb = rgbs[i];
+            bgr[j++] = (byte) rgb;
+            bgr[j++] = (byte) (rgb >> 8);
+            bgr[j++] = (byte) (rgb >> 16);
+        }
+        return bgr;
+    }
+
+    private static byte[] fromAbgrs(byte[] abgrs) {
+        byte[] bgr = new byte[abgrs.length / 4 * 3];
+        for (int i = 0, j = 0; i < abgrs.length; i += 4) {
+            bgr[j++] = abgrs[i + 1];
+            bgr[j++] = abgrs[i + 2];
+            bgr[j++] = abgrs[i + 3];
+        }
+        return bgr;
+    }
+
+    private static byte[] fromGrays(byte[] grays, ColorModel colorModel) {
+        // gray images are stored in a linear color space, so look up each level's sRGB value the same way getRGB does
+        byte[] levels = new byte[256];
+        byte[] pixel = new byte[1];
+        for (int gray = 0; gray < levels.length; gray++) {
+            pixel[0] = (byte) gray;
+            levels[gray] = (byte) colorModel.getRGB(pixel);
+        }
+        byte[] bgr = new byte[grays.length * 3];
+        for (int i = 0, j = 0; i < grays.length; i++) {
+            byte level = levels[grays[i] & 0xff];
+            bgr[j++] = level;
+            bgr[j++] = level;
+            bgr[j++] = level;
+        }
+        return bgr;
+    }
+
+    private MatConverter() {
+    }
+}
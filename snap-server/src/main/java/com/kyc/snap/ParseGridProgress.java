@@ -0,0 +1,23 @@
+package com.kyc.snap;
+
+import lombok.Data;
+
+@Data
+public class ParseGridProgress {
+
+    private final Stage stage;
+    private final ParsedGrid parsedGrid;
+    // why the parse failed, only set for the ERROR stage
+    private String error;
+
+    public enum Stage {
+        // all squares with their colors and border colors, but no text yet
+        COLORS,
+        // only the squares whose text was just found
+        TEXT,
+        // the final parsed grid, the same as /parseGrid returns
+        DONE,
+        // the parse failed, and no more records follow
+        ERROR,
+    }
+}
@@ -9,5 +9,17 @@ public class ParseGridRequest {
     private final Grid grid;
 
     private int numClusters = 2;
+    private ClusteringMode clusteringMode = ClusteringMode.OPENCV;
     private double crosswordThreshold = 0.5;
+    private TextDetectionMode textDetectionMode = TextDetectionMode.PER_SQUARE;
+
+    public enum ClusteringMode {
+        HISTOGRAM,
+        OPENCV,
+    }
+
+    public enum TextDetectionMode {
+        PER_SQUARE,
+        MOSAIC,
+    }
 }
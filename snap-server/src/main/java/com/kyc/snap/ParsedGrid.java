@@ -1,6 +1,7 @@
 package com.kyc.snap;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import lombok.Data;
 
@@ -11,6 +12,19 @@ public class ParsedGrid {
     private final int numCols;
     private final List<ParsedGridSquare> squares;
 
+    static ParsedGrid copyOf(ParsedGrid parsedGrid) {
+        return new ParsedGrid(parsedGrid.numRows, parsedGrid.numCols, parsedGrid.squares.stream()
+            .map(square -> {
+                ParsedGridSquare newSquare = new ParsedGridSquare(square.row, square.col);
+                newSquare.setRgb(square.rgb);
+                newSquare.setText(square.text);
+                newSquare.setRightBorderRgb(square.rightBorderRgb);
+                newSquare.setBottomBorderRgb(square.bottomBorderRgb);
+                return newSquare;
+            })
+            .collect(Collectors.toList()));
+    }
+
     @Data
     public static class ParsedGridSquare {
 
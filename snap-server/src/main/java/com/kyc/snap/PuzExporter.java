@@ -0,0 +1,121 @@
+package com.kyc.snap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.BadRequestException;
+
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+
+// The Across Lite binary format, version 1.3 (https://code.google.com/archive/p/puz/wikis/FileFormat.wiki)
+class PuzExporter implements GridExporter {
+
+    private static final int HEADER_SIZE = 0x34;
+    private static final byte BLOCK = '.';
+    private static final byte EMPTY = '-';
+    // the format has no way to leave out a letter of the solution
+    private static final byte UNKNOWN_LETTER = 'X';
+
+    @Override
+    public String getFileExtension() {
+        return "puz";
+    }
+
+    @Override
+    public String getMediaType() {
+        return "application/x-crossword";
+    }
+
+    @Override
+    public void export(ExportRequest request, OutputStream output) throws IOException {
+        CrosswordLayout layout = new CrosswordLayout(request);
+        if (layout.numRows > 255 || layout.numCols > 255)
+            throw new BadRequestException("Grids in this format have at most 255 rows and columns");
+
+        byte[] solution = new byte[layout.numRows * layout.numCols];
+        byte[] state = new byte[solution.length];
+        for (int row = 0; row < layout.numRows; row++)
+            for (int col = 0; col < layout.numCols; col++) {
+                int index = row * layout.numCols + col;
+                String letters = layout.letters[row][col];
+                solution[index] = layout.blocks[row][col] ? BLOCK
+                        : letters.isEmpty() ? UNKNOWN_LETTER : (byte) letters.charAt(0);
+                state[index] = layout.blocks[row][col] ? BLOCK : EMPTY;
+            }
+        // title, author, copyright, then the clues in order, then notes, each null-terminated
+        List<byte[]> strings = new ArrayList<>();
+        strings.add(toBytes(request.getTitle()));
+        strings.add(toBytes(""));
+        strings.add(toBytes(""));
+        for (CrosswordBlank blank : layout.blanks)
+            strings.add(toBytes(layout.getClue(blank)));
+        strings.add(toBytes(""));
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.position(0x02);
+        header.put("ACROSS&DOWN\0".getBytes(StandardCharsets.ISO_8859_1));
+        header.position(0x18);
+        header.put("1.3\0".getBytes(StandardCharsets.ISO_8859_1));
+        header.position(0x2C);
+        header.put((byte) layout.numCols);
+        header.put((byte) layout.numRows);
+        header.putShort((short) layout.blanks.size());
+        header.putShort((short) 1);
+        header.putShort((short) 0);
+
+        int cibChecksum = checksum(header.array(), 0x2C, 8, 0);
+        int solutionChecksum = checksum(solution, 0, solution.length, 0);
+        int stateChecksum = checksum(state, 0, state.length, 0);
+        int stringsChecksum = stringsChecksum(strings, 0);
+        int checksum = stringsChecksum(strings, checksum(state, 0, state.length,
+            checksum(solution, 0, solution.length, cibChecksum)));
+        header.putShort(0x00, (short) checksum);
+        header.putShort(0x0E, (short) cibChecksum);
+        int[] maskedChecksums = { cibChecksum, solutionChecksum, stateChecksum, stringsChecksum };
+        byte[] mask = "ICHEATED".getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < 4; i++) {
+            header.put(0x10 + i, (byte) (mask[i] ^ maskedChecksums[i]));
+            header.put(0x14 + i, (byte) (mask[i + 4] ^ (maskedChecksums[i] >> 8)));
+        }
+
+        output.write(header.array());
+        output.write(solution);
+        output.write(state);
+        for (byte[] string : strings)
+            output.write(string);
+        output.flush();
+    }
+
+    private static byte[] toBytes(String string) {
+        byte[] encoded = string.getBytes(StandardCharsets.ISO_8859_1);
+        return Arrays.copyOf(encoded, encoded.length + 1);
+    }
+
+    // the title, author, copyright and notes are included with their null terminators only if not empty, and the clues
+    // without them
+    private static int stringsChecksum(List<byte[]> strings, int checksum) {
+        for (int i = 0; i < strings.size(); i++) {
+            byte[] string = strings.get(i);
+            boolean isClue = i >= 3 && i < strings.size() - 1;
+            if (isClue)
+                checksum = checksum(string, 0, string.length - 1, checksum);
+            else if (string.length > 1)
+                checksum = checksum(string, 0, string.length, checksum);
+        }
+        return checksum;
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length, int checksum) {
+        for (int i = offset; i < offset + length; i++) {
+            checksum = (checksum >> 1) | ((checksum & 1) << 15);
+            checksum = (checksum + (bytes[i] & 0xff)) & 0xffff;
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,22 @@
+package com.kyc.snap;
+
+import java.util.List;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+class RateLimitedClueProvider implements ClueProvider {
+
+    private final ClueProvider delegate;
+    private final RateLimiter rateLimiter;
+
+    RateLimitedClueProvider(ClueProvider delegate, double lookupsPerSecond) {
+        this.delegate = delegate;
+        this.rateLimiter = RateLimiter.create(lookupsPerSecond);
+    }
+
+    @Override
+    public List<CrosswordClueResult> solveClue(String clue, int numLetters) {
+        rateLimiter.acquire();
+        return delegate.solveClue(clue, numLetters);
+    }
+}
@@ -0,0 +1,55 @@
+package com.kyc.snap;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.dropwizard.util.Duration;
+import lombok.Data;
+
+// Cached values are never handed out directly; every caller gets its own copy, so callers are free to mutate them
+class ResultCache<V> {
+
+    private final Cache<Key, V> cache;
+    private final UnaryOperator<V> copier;
+
+    ResultCache(long maximumSize, Duration expireAfterWrite, UnaryOperator<V> copier) {
+        this.copier = copier;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite.toMilliseconds(), TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    }
+
+    V get(byte[] data, List<?> params, Supplier<V> loader) {
+        try {
+            return copier.apply(cache.get(new Key(Hashing.sha256().hashBytes(data).toString(), params), loader::get));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    void registerMetrics(MetricRegistry metrics, String name) {
+        metrics.register(MetricRegistry.name(ResultCache.class, name, "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.register(MetricRegistry.name(ResultCache.class, name, "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.register(MetricRegistry.name(ResultCache.class, name, "size"), (Gauge<Long>) cache::size);
+    }
+
+    @Data
+    private static class Key {
+        private final String dataHash;
+        private final List<?> params;
+    }
+}
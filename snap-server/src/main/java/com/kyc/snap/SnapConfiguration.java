@@ -1,8 +1,12 @@
 package com.kyc.snap;
 
 import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
 
 @Data
 @EqualsAndHashCode(callSuper=false)
@@ -11,4 +15,58 @@ class SnapConfiguration extends Configuration {
     private final String productName;
 
     private final String googleAPICredentialsFile;
+
+    // exported spreadsheets are shared with this email address or domain, if set
+    private String shareExportsWith;
+    private String shareExportsRole = "reader";
+
+    private int maxConcurrentTextDetectionRequests = 4;
+
+    private int imageParallelism = Runtime.getRuntime().availableProcessors();
+
+    private int crosswordSolverParallelism = Runtime.getRuntime().availableProcessors();
+
+    // clues are looked up in this corpus of tab-separated clue and answer lines if it exists, and online otherwise
+    private String clueCorpusFile = "data/clues.tsv";
+    private String clueIndexDirectory = "data/clue-index";
+    private String clueAnalyzerConfigDirectory = "../solr/conf";
+
+    private String wordplaysUrl = "http://www.wordplays.com/crossword-solver";
+    private double wordplaysLookupsPerSecond = 1. / 9;
+    private String clueCacheDirectory = "data/clue-cache";
+    private int maxConcurrentClueLookups = 4;
+
+    // the most parameter sets a single gridify sweep may try
+    private int maxGridifySweepSize = 256;
+
+    // the most words a single word search may return
+    private int maxWordSearchLimit = 1000;
+
+    // exact crossword fill searches find at most this many fills, and run for at most this long
+    private int maxFills = 100;
+    private Duration maxFillTimeBudget = Duration.seconds(30);
+
+    // the most queries a single anagram request may have
+    private int maxAnagramQueries = 1000;
+
+    // solve sessions are evicted once their solvers take more than this in total
+    private Size maxSolveSessionsSize = Size.megabytes(512);
+
+    private long resultCacheMaximumSize = 256;
+    private Duration resultCacheTtl = Duration.hours(1);
+
+    private JobPoolConfiguration gridifyJobs = new JobPoolConfiguration(4, 32);
+    private JobPoolConfiguration parseGridJobs = new JobPoolConfiguration(2, 16);
+    private JobPoolConfiguration solveCrosswordJobs = new JobPoolConfiguration(2, 4);
+    // the longest a job status request may wait for the job to finish
+    private Duration maxJobWait = Duration.seconds(30);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class JobPoolConfiguration {
+
+        private int threads;
+        private int queueCapacity;
+    }
 }
@@ -1,17 +1,71 @@
 package com.kyc.snap;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kyc.snap.AnagramRequest.AnagramQuery;
+import com.kyc.snap.AnagramRequest.AnagramQueryType;
+import com.kyc.snap.GridifySweepRequest.ParameterValues;
+import com.kyc.snap.GridifySweepResult.GridifyParameters;
+import com.kyc.snap.GridifySweepResult.GridifySweepEntry;
+import com.kyc.snap.Job.JobType;
+import com.kyc.snap.ParseGridProgress.Stage;
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+import com.kyc.snap.SolveCrosswordRequest.SolveMode;
+import com.kyc.snap.WordSearchRequest.WordSearchSyntax;
 
 class SnapResource implements SnapService {
 
     private final String productName;
+    private final int maxGridifySweepSize;
+    private final int maxAnagramQueries;
+    private final int maxWordSearchLimit;
     private final GoogleAPIManager googleAPIManager;
     private final CrosswordManager crosswordManager;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService imageExecutor;
+    private final ResultCache<Grid> gridifyCache;
+    private final ResultCache<ParsedGrid> parseGridCache;
+    private final JobManager jobManager;
+    private final SolveSessionManager solveSessionManager;
+    private final AnagramIndex anagramIndex;
+    private final Map<String, GridExporter> exporters;
 
-    public SnapResource(String productName, GoogleAPIManager googleAPIManager, CrosswordManager crosswordManager) {
+    public SnapResource(String productName, int maxGridifySweepSize, int maxAnagramQueries, int maxWordSearchLimit,
+            GoogleAPIManager googleAPIManager, CrosswordManager crosswordManager, ObjectMapper objectMapper,
+            ExecutorService imageExecutor, ResultCache<Grid> gridifyCache, ResultCache<ParsedGrid> parseGridCache,
+            JobManager jobManager, SolveSessionManager solveSessionManager, AnagramIndex anagramIndex,
+            List<GridExporter> exporters) {
         this.productName = productName;
+        this.maxGridifySweepSize = maxGridifySweepSize;
+        this.maxAnagramQueries = maxAnagramQueries;
+        this.maxWordSearchLimit = maxWordSearchLimit;
         this.googleAPIManager = googleAPIManager;
         this.crosswordManager = crosswordManager;
+        this.objectMapper = objectMapper;
+        this.imageExecutor = imageExecutor;
+        this.gridifyCache = gridifyCache;
+        this.parseGridCache = parseGridCache;
+        this.jobManager = jobManager;
+        this.solveSessionManager = solveSessionManager;
+        this.anagramIndex = anagramIndex;
+        this.exporters = exporters.stream()
+            .collect(Collectors.toMap(GridExporter::getFileExtension, exporter -> exporter));
     }
 
     @Override
@@ -21,38 +75,254 @@ class SnapResource implements SnapService {
 
     @Override
     public Grid gridify(GridifyRequest request) {
-        BufferedImage image = ImageUtils.from(request.getData());
-        return ImageUtils.findGrid(
-            image,
+        List<?> params = Arrays.asList(
             request.getCannyThreshold1(),
             request.getCannyThreshold2(),
             request.getHoughThreshold(),
             request.getHoughMinLineLength(),
-            request.getMinDistBetweenGridLines());
+            request.getMinDistBetweenGridLines(),
+            request.isPyramid());
+        return gridifyCache.get(request.getData(), params, () -> {
+            BufferedImage image = ImageUtils.from(request.getData());
+            return ImageUtils.findGrid(
+                image,
+                request.getCannyThreshold1(),
+                request.getCannyThreshold2(),
+                request.getHoughThreshold(),
+                request.getHoughMinLineLength(),
+                request.getMinDistBetweenGridLines(),
+                request.isPyramid());
+        });
     }
 
     @Override
-    public ParsedGrid parseGrid(ParseGridRequest request) {
+    public GridifySweepResult gridifySweep(GridifySweepRequest request) {
+        List<GridifyRequest> parameterSets = new ArrayList<>(request.getParameterSets());
+        ParameterValues values = request.getParameterValues();
+        long sweepSize = parameterSets.size();
+        if (values != null)
+            sweepSize += (long) values.getCannyThreshold1().size() * values.getCannyThreshold2().size()
+                    * values.getHoughThreshold().size() * values.getHoughMinLineLength().size()
+                    * values.getMinDistBetweenGridLines().size() * values.getPyramid().size();
+        if (sweepSize > maxGridifySweepSize)
+            throw new BadRequestException("A sweep may try at most " + maxGridifySweepSize + " parameter sets, not "
+                    + sweepSize);
+        if (values != null)
+            for (int cannyThreshold1 : values.getCannyThreshold1())
+                for (int cannyThreshold2 : values.getCannyThreshold2())
+                    for (int houghThreshold : values.getHoughThreshold())
+                        for (int houghMinLineLength : values.getHoughMinLineLength())
+                            for (int minDistBetweenGridLines : values.getMinDistBetweenGridLines())
+                                for (boolean pyramid : values.getPyramid()) {
+                                    GridifyRequest params = new GridifyRequest(null);
+                                    params.setCannyThreshold1(cannyThreshold1);
+                                    params.setCannyThreshold2(cannyThreshold2);
+                                    params.setHoughThreshold(houghThreshold);
+                                    params.setHoughMinLineLength(houghMinLineLength);
+                                    params.setMinDistBetweenGridLines(minDistBetweenGridLines);
+                                    params.setPyramid(pyramid);
+                                    parameterSets.add(params);
+                                }
+
         BufferedImage image = ImageUtils.from(request.getData());
-        return ImageUtils.parseGrid(
-            image,
-            request.getGrid(),
-            request.getNumClusters(),
-            request.getCrosswordThreshold(),
-            googleAPIManager,
-            crosswordManager);
+        List<Grid> grids = ImageUtils.findGrids(image, parameterSets, imageExecutor);
+        List<GridifySweepEntry> entries = new ArrayList<>();
+        for (int i = 0; i < parameterSets.size(); i++)
+            entries.add(new GridifySweepEntry(GridifyParameters.of(parameterSets.get(i)), grids.get(i),
+                ImageUtils.regularityScore(grids.get(i))));
+        return new GridifySweepResult(entries);
+    }
+
+    @Override
+    public ParsedGrid parseGrid(ParseGridRequest request) {
+        return parseGrid(request, progress -> {});
+    }
+
+    @Override
+    public StreamingOutput parseGridStream(ParseGridRequest request) {
+        return output -> {
+            // the parse may be shared with other requests for the same image, so a client that goes away only stops
+            // its own stream
+            AtomicBoolean disconnected = new AtomicBoolean();
+            Consumer<ParseGridProgress> onProgress = progress -> {
+                if (disconnected.get())
+                    return;
+                try {
+                    synchronized (output) {
+                        output.write(objectMapper.writeValueAsBytes(progress));
+                        output.write('\n');
+                        output.flush();
+                    }
+                } catch (IOException e) {
+                    disconnected.set(true);
+                }
+            };
+            AtomicBoolean streamed = new AtomicBoolean();
+            ParsedGrid parsedGrid;
+            try {
+                parsedGrid = parseGrid(request, progress -> {
+                    streamed.set(true);
+                    onProgress.accept(progress);
+                });
+            } catch (RuntimeException e) {
+                ParseGridProgress error = new ParseGridProgress(Stage.ERROR, null);
+                error.setError(Objects.toString(e.getMessage(), e.toString()));
+                onProgress.accept(error);
+                return;
+            }
+            // a cached result (or one parsed for a concurrent request) came with no stages, so send them from it
+            if (!streamed.get())
+                replayStages(parsedGrid, onProgress);
+            onProgress.accept(new ParseGridProgress(Stage.DONE, parsedGrid));
+        };
     }
 
     @Override
     public ParsedGrid solveCrossword(SolveCrosswordRequest request) {
+        return jobManager.run(JobType.SOLVE_CROSSWORD, () -> solveCrosswordNow(request));
+    }
+
+    @Override
+    public List<CrosswordFill> findCrosswordFills(SolveCrosswordRequest request) {
+        return jobManager.run(JobType.SOLVE_CROSSWORD, () -> {
+            ParsedGrid parsedGrid = request.getParsedGrid();
+            CrosswordGrid crosswordGrid = crosswordManager.toCrosswordGrid(parsedGrid, 1.0).get();
+            CrosswordCluesList clues = crosswordManager.parseStandardCluesFormat(request.getCluesString());
+            List<List<CrosswordClueResult>> results = crosswordManager.solveClues(crosswordGrid, clues);
+            return crosswordManager.findFills(parsedGrid, crosswordGrid, clues, results, request.getMaxFills(),
+                request.getFillTimeBudgetMillis());
+        });
+    }
+
+    @Override
+    public SolveSession createSolveSession(SolveCrosswordRequest request) {
+        return jobManager.run(JobType.SOLVE_CROSSWORD, () -> solveSessionManager.create(request));
+    }
+
+    @Override
+    public SolveSession updateSolveSession(String id, SolveSessionUpdate update) {
+        return solveSessionManager.update(id, update);
+    }
+
+    @Override
+    public List<List<String>> findAnagrams(AnagramRequest request) {
+        if (request.getQueries().size() > maxAnagramQueries)
+            throw new BadRequestException("A batch may have at most " + maxAnagramQueries + " queries, not "
+                    + request.getQueries().size());
+        for (AnagramQuery query : request.getQueries())
+            if (query.getType() == AnagramQueryType.SUBANAGRAM && (query.getMinLength() < 1 || query.getLimit() < 1))
+                throw new BadRequestException("Subanagram queries must have a positive minLength and limit");
+        return request.getQueries().stream()
+            .map(query -> query.getType() == AnagramQueryType.EXACT
+                ? anagramIndex.findAnagrams(query.getLetters())
+                : anagramIndex.findSubanagrams(query.getLetters(), query.getMinLength(), query.getLimit()))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<String> findWords(WordSearchRequest request) {
+        if (request.getLimit() < 1 || request.getLimit() > maxWordSearchLimit)
+            throw new BadRequestException("A search may return between 1 and " + maxWordSearchLimit + " words, not "
+                    + request.getLimit());
+        if (request.getOffset() < 0)
+            throw new BadRequestException("A search offset must not be negative");
+        WordPattern pattern = request.getSyntax() == WordSearchSyntax.REGEX
+            ? WordPattern.compileRegex(request.getPattern())
+            : WordPattern.compileWildcard(request.getPattern());
+        return crosswordManager.findWords(pattern, request.getOffset(), request.getLimit());
+    }
+
+    @Override
+    public Job submitGridifyJob(GridifyRequest request) {
+        return jobManager.submit(JobType.GRIDIFY, () -> gridify(request));
+    }
+
+    @Override
+    public Job submitParseGridJob(ParseGridRequest request) {
+        return jobManager.submit(JobType.PARSE_GRID, () -> parseGrid(request));
+    }
+
+    @Override
+    public Job submitSolveCrosswordJob(SolveCrosswordRequest request) {
+        return jobManager.submit(JobType.SOLVE_CROSSWORD, () -> solveCrosswordNow(request));
+    }
+
+    @Override
+    public Job getJob(String id, long waitMillis) {
+        return jobManager.get(id, waitMillis);
+    }
+
+    private ParsedGrid solveCrosswordNow(SolveCrosswordRequest request) {
         ParsedGrid parsedGrid = request.getParsedGrid();
         CrosswordGrid crosswordGrid = crosswordManager.toCrosswordGrid(parsedGrid, 1.0).get();
         CrosswordCluesList clues = crosswordManager.parseStandardCluesFormat(request.getCluesString());
-        return crosswordManager.solveCrossword(parsedGrid, crosswordGrid, clues);
+        List<List<CrosswordClueResult>> results = crosswordManager.solveClues(crosswordGrid, clues);
+        if (request.getMode() == SolveMode.EXACT) {
+            List<CrosswordFill> fills = crosswordManager.findFills(parsedGrid, crosswordGrid, clues, results, 1,
+                request.getFillTimeBudgetMillis());
+            // fall back to the probabilistic solver if there's no complete fill, or none was found in time
+            if (!fills.isEmpty())
+                return fills.get(0).getParsedGrid();
+        }
+        return crosswordManager.solveCrossword(parsedGrid, crosswordGrid, clues, results, request.getPruningThreshold(),
+            request.getTolerance(), request.getMaxIterations());
+    }
+
+    private ParsedGrid parseGrid(ParseGridRequest request, Consumer<ParseGridProgress> onProgress) {
+        return parseGridCache.get(request.getData(), parseGridParams(request), () -> {
+            BufferedImage image = ImageUtils.from(request.getData());
+            return ImageUtils.parseGrid(
+                image,
+                request.getGrid(),
+                request.getNumClusters(),
+                request.getClusteringMode(),
+                request.getCrosswordThreshold(),
+                request.getTextDetectionMode(),
+                googleAPIManager,
+                crosswordManager,
+                imageExecutor,
+                onProgress);
+        });
+    }
+
+    // everything besides the image that the parsed grid depends on
+    static List<?> parseGridParams(ParseGridRequest request) {
+        return Arrays.asList(
+            request.getGrid(),
+            request.getNumClusters(),
+            request.getClusteringMode(),
+            request.getCrosswordThreshold(),
+            request.getTextDetectionMode());
+    }
+
+    private static void replayStages(ParsedGrid parsedGrid, Consumer<ParseGridProgress> onProgress) {
+        ParsedGrid colors = ParsedGrid.copyOf(parsedGrid);
+        colors.getSquares().forEach(square -> square.setText(""));
+        onProgress.accept(new ParseGridProgress(Stage.COLORS, colors));
+        List<ParsedGridSquare> textSquares = parsedGrid.getSquares().stream()
+            .filter(square -> !square.getText().isEmpty())
+            .collect(Collectors.toList());
+        onProgress.accept(new ParseGridProgress(Stage.TEXT,
+            new ParsedGrid(parsedGrid.getNumRows(), parsedGrid.getNumCols(), textSquares)));
     }
 
     @Override
     public String exportToGoogleSheets(ExportToGoogleSheetsRequest request) {
-        return googleAPIManager.exportToGoogleSheets(request.getParsedGrid());
+        return googleAPIManager.exportToGoogleSheets(request.getParsedGrid(), request.getTitle());
+    }
+
+    @Override
+    public Response export(String format, ExportRequest request) {
+        GridExporter exporter = exporters.get(format);
+        if (exporter == null)
+            throw new NotFoundException("Unknown export format " + format);
+        // the exporters all need a title, even if the request explicitly has none
+        if (request.getTitle() == null)
+            request.setTitle(ExportRequest.DEFAULT_TITLE);
+        String filename = request.getTitle().replaceAll("[^A-Za-z0-9_-]+", "_") + "." + exporter.getFileExtension();
+        StreamingOutput output = out -> exporter.export(request, out);
+        return Response.ok(output, exporter.getMediaType())
+            .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
+            .build();
     }
 }
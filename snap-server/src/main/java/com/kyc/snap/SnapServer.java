@@ -1,7 +1,22 @@
 package com.kyc.snap;
 
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.kyc.snap.Job.JobType;
+import com.kyc.snap.SnapConfiguration.JobPoolConfiguration;
+
 import io.dropwizard.Application;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
 
 public class SnapServer extends Application<SnapConfiguration> {
 
@@ -9,12 +24,64 @@ public class SnapServer extends Application<SnapConfiguration> {
         new SnapServer().run(args);
     }
 
+    @Override
+    public void initialize(Bootstrap<SnapConfiguration> bootstrap) {
+        bootstrap.addCommand(new CompileDictionaryCommand());
+    }
+
     @Override
     public void run(SnapConfiguration configuration, Environment environment) throws Exception {
         ImageUtils.load();
-        GoogleAPIManager googleAPIManager = new GoogleAPIManager(configuration.getGoogleAPICredentialsFile());
-        DictionaryManager dictionaryManager = DictionaryManager.load("data/dictionary.txt");
-        CrosswordManager crosswordManager = new CrosswordManager(dictionaryManager);
-        environment.jersey().register(new SnapResource(configuration.getProductName(), googleAPIManager, crosswordManager));
+        GoogleAPIManager googleAPIManager = new GoogleAPIManager(configuration.getGoogleAPICredentialsFile(),
+            configuration.getMaxConcurrentTextDetectionRequests(), configuration.getShareExportsWith(),
+            configuration.getShareExportsRole());
+        environment.lifecycle().manage(googleAPIManager);
+        DictionaryManager dictionaryManager = DictionaryManager.map("data/dictionary.bin");
+        ClueProvider clueProvider;
+        if (new File(configuration.getClueCorpusFile()).exists()) {
+            LuceneClueProvider luceneClueProvider = new LuceneClueProvider(configuration.getClueCorpusFile(),
+                configuration.getClueIndexDirectory(), configuration.getClueAnalyzerConfigDirectory());
+            environment.lifecycle().manage(luceneClueProvider);
+            clueProvider = luceneClueProvider;
+        } else {
+            clueProvider = new CachingClueProvider(
+                new RateLimitedClueProvider(new WordplaysClueProvider(configuration.getWordplaysUrl()),
+                    configuration.getWordplaysLookupsPerSecond()),
+                configuration.getClueCacheDirectory() + "/wordplays", environment.getObjectMapper());
+        }
+        ForkJoinPool solverPool = new ForkJoinPool(configuration.getCrosswordSolverParallelism());
+        environment.lifecycle().manage(new ExecutorServiceManager(solverPool, Duration.seconds(5), "solver"));
+        ExecutorService clueLookupExecutor = Executors.newFixedThreadPool(configuration.getMaxConcurrentClueLookups(),
+            new ThreadFactoryBuilder().setNameFormat("clue-lookup-%d").setDaemon(true).build());
+        environment.lifecycle().manage(
+            new ExecutorServiceManager(clueLookupExecutor, Duration.seconds(5), "clue-lookup"));
+        CrosswordManager crosswordManager = new CrosswordManager(dictionaryManager,
+            new DictionaryAutomaton(dictionaryManager), clueProvider, clueLookupExecutor, solverPool,
+            configuration.getMaxFills(), configuration.getMaxFillTimeBudget());
+        ForkJoinPool imageExecutor = new ForkJoinPool(configuration.getImageParallelism());
+        environment.lifecycle().manage(new ExecutorServiceManager(imageExecutor, Duration.seconds(5), "image"));
+        ResultCache<Grid> gridifyCache = new ResultCache<>(configuration.getResultCacheMaximumSize(),
+            configuration.getResultCacheTtl(), Grid::copyOf);
+        gridifyCache.registerMetrics(environment.metrics(), "gridify");
+        ResultCache<ParsedGrid> parseGridCache = new ResultCache<>(configuration.getResultCacheMaximumSize(),
+            configuration.getResultCacheTtl(), ParsedGrid::copyOf);
+        parseGridCache.registerMetrics(environment.metrics(), "parseGrid");
+        Map<JobType, JobPoolConfiguration> jobPools = new EnumMap<>(JobType.class);
+        jobPools.put(JobType.GRIDIFY, configuration.getGridifyJobs());
+        jobPools.put(JobType.PARSE_GRID, configuration.getParseGridJobs());
+        jobPools.put(JobType.SOLVE_CROSSWORD, configuration.getSolveCrosswordJobs());
+        JobManager jobManager = new JobManager(jobPools, configuration.getMaxJobWait());
+        environment.lifecycle().manage(jobManager);
+        SolveSessionManager solveSessionManager =
+            new SolveSessionManager(crosswordManager, configuration.getMaxSolveSessionsSize());
+        environment.jersey().register(new SnapResource(configuration.getProductName(),
+            configuration.getMaxGridifySweepSize(), configuration.getMaxAnagramQueries(),
+            configuration.getMaxWordSearchLimit(), googleAPIManager, crosswordManager, environment.getObjectMapper(),
+            imageExecutor, gridifyCache, parseGridCache, jobManager, solveSessionManager,
+            new AnagramIndex(dictionaryManager), ImmutableList.of(
+                new IpuzExporter(environment.getObjectMapper().getFactory()),
+                new PuzExporter(),
+                new CsvExporter(),
+                new XlsxExporter())));
     }
 }
@@ -1,11 +1,17 @@
 package com.kyc.snap;
 
+import java.util.List;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
@@ -20,15 +26,65 @@ public interface SnapService {
     @Path("gridify")
     Grid gridify(GridifyRequest request);
 
+    @POST
+    @Path("gridify/sweep")
+    GridifySweepResult gridifySweep(GridifySweepRequest request);
+
     @POST
     @Path("parseGrid")
     ParsedGrid parseGrid(ParseGridRequest request);
 
+    @POST
+    @Path("parseGrid/stream")
+    @Produces("application/x-ndjson")
+    StreamingOutput parseGridStream(ParseGridRequest request);
+
     @POST
     @Path("solveCrossword")
     ParsedGrid solveCrossword(SolveCrosswordRequest request);
 
+    @POST
+    @Path("solveCrossword/fills")
+    List<CrosswordFill> findCrosswordFills(SolveCrosswordRequest request);
+
+    @POST
+    @Path("solveCrossword/sessions")
+    SolveSession createSolveSession(SolveCrosswordRequest request);
+
+    @POST
+    @Path("solveCrossword/sessions/{id}")
+    SolveSession updateSolveSession(@PathParam("id") String id, SolveSessionUpdate update);
+
+    @POST
+    @Path("anagrams")
+    List<List<String>> findAnagrams(AnagramRequest request);
+
+    @POST
+    @Path("words")
+    List<String> findWords(WordSearchRequest request);
+
+    @POST
+    @Path("jobs/gridify")
+    Job submitGridifyJob(GridifyRequest request);
+
+    @POST
+    @Path("jobs/parseGrid")
+    Job submitParseGridJob(ParseGridRequest request);
+
+    @POST
+    @Path("jobs/solveCrossword")
+    Job submitSolveCrosswordJob(SolveCrosswordRequest request);
+
+    @GET
+    @Path("jobs/{id}")
+    Job getJob(@PathParam("id") String id, @QueryParam("waitMillis") long waitMillis);
+
     @POST
     @Path("export/googleSheets")
     String exportToGoogleSheets(ExportToGoogleSheetsRequest request);
+
+    @POST
+    @Path("export/{format}")
+    @Produces(MediaType.WILDCARD)
+    Response export(@PathParam("format") String format, ExportRequest request);
 }
@@ -8,4 +8,23 @@ public class SolveCrosswordRequest {
     private final Grid grid;
     private final ParsedGrid parsedGrid;
     private final String cluesString;
+
+    private SolveMode mode = SolveMode.PROBABILISTIC;
+
+    // cells whose most likely letter has at least this probability restrict the candidate words of their clues, or 0
+    // to always score every word
+    private double pruningThreshold = 0;
+
+    // stop once no letter probability changes by more than this, and only rescore the clues crossing cells that did
+    private double tolerance = 1e-4;
+    private int maxIterations = 4;
+
+    // for exact fills, how many of the best fills to find and how long to search for them
+    private int maxFills = 10;
+    private long fillTimeBudgetMillis = 5000;
+
+    public enum SolveMode {
+        PROBABILISTIC,
+        EXACT,
+    }
 }
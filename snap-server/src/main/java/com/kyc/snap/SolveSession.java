@@ -0,0 +1,10 @@
+package com.kyc.snap;
+
+import lombok.Data;
+
+@Data
+public class SolveSession {
+
+    private final String id;
+    private final ParsedGrid parsedGrid;
+}
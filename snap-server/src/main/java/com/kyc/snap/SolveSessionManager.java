@@ -0,0 +1,114 @@
+package com.kyc.snap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.kyc.snap.CrosswordCluesList.CrosswordClue;
+import com.kyc.snap.SolveSessionUpdate.PinnedLetter;
+import com.kyc.snap.SolveSessionUpdate.RejectedAnswer;
+
+import io.dropwizard.util.Size;
+import lombok.Data;
+
+// Keeps the solver of each crossword on the server, so that small changes from the client only need a few iterations
+// starting from the previous letter probabilities. Sessions are evicted once the solvers' estimated sizes (as of their
+// creation) add up to more than the configured maximum, or an hour after their last use.
+class SolveSessionManager {
+
+    private final CrosswordManager crosswordManager;
+    private final Cache<String, Session> sessions;
+
+    SolveSessionManager(CrosswordManager crosswordManager, Size maxSize) {
+        this.crosswordManager = crosswordManager;
+        this.sessions = CacheBuilder.newBuilder()
+            .maximumWeight(maxSize.toKilobytes())
+            .weigher((String id, Session session) ->
+                (int) Math.min(Integer.MAX_VALUE, session.solver.estimateSize() / 1024 + 1))
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+    }
+
+    SolveSession create(SolveCrosswordRequest request) {
+        ParsedGrid parsedGrid = request.getParsedGrid();
+        CrosswordGrid crosswordGrid = crosswordManager.toCrosswordGrid(parsedGrid, 1.0).get();
+        CrosswordCluesList clues = crosswordManager.parseStandardCluesFormat(request.getCluesString());
+        List<List<CrosswordClueResult>> results = crosswordManager.solveClues(crosswordGrid, clues);
+        Map<CrosswordCluePosition, Integer> clueIndices = new HashMap<>();
+        for (int i = 0; i < clues.getClues().size(); i++)
+            clueIndices.put(clues.getClues().get(i).getPosition(), i);
+        Session session = new Session(parsedGrid, crosswordGrid, clueIndices,
+            crosswordManager.createSolver(parsedGrid, crosswordGrid, clues, results, request.getPruningThreshold()),
+            request.getTolerance(), request.getMaxIterations());
+
+        String id = UUID.randomUUID().toString();
+        sessions.put(id, session);
+        synchronized (session) {
+            return solve(id, session);
+        }
+    }
+
+    SolveSession update(String id, SolveSessionUpdate update) {
+        Session session = sessions.getIfPresent(id);
+        if (session == null)
+            throw new NotFoundException("No solve session with id " + id);
+        for (PinnedLetter pinnedLetter : update.getPinnedLetters()) {
+            if (!pinnedLetter.getLetter().matches("[A-Za-z]?"))
+                throw new BadRequestException("Invalid pinned letter " + pinnedLetter.getLetter());
+            if (!session.solver.isInClue(pinnedLetter.getRow(), pinnedLetter.getCol()))
+                throw new BadRequestException(
+                    "No white square at row " + pinnedLetter.getRow() + ", column " + pinnedLetter.getCol());
+        }
+        for (RejectedAnswer rejectedAnswer : update.getRejectedAnswers())
+            getClueIndex(session, rejectedAnswer.getPosition());
+        for (CrosswordClue editedClue : update.getEditedClues())
+            getClueIndex(session, editedClue.getPosition());
+
+        // look up the edited clues before locking, since that may take a while
+        List<List<CrosswordClueResult>> editedResults = crosswordManager.solveClues(session.crosswordGrid,
+            new CrosswordCluesList(update.getEditedClues()));
+        synchronized (session) {
+            for (PinnedLetter pinnedLetter : update.getPinnedLetters()) {
+                String letter = pinnedLetter.getLetter().toUpperCase();
+                session.solver.pinLetter(pinnedLetter.getRow(), pinnedLetter.getCol(),
+                    letter.isEmpty() ? -1 : letter.charAt(0) - 'A');
+            }
+            for (RejectedAnswer rejectedAnswer : update.getRejectedAnswers())
+                session.solver.rejectAnswer(getClueIndex(session, rejectedAnswer.getPosition()),
+                    rejectedAnswer.getAnswer().toUpperCase());
+            for (int i = 0; i < update.getEditedClues().size(); i++)
+                session.solver.setResults(getClueIndex(session, update.getEditedClues().get(i).getPosition()),
+                    editedResults.get(i));
+            return solve(id, session);
+        }
+    }
+
+    private SolveSession solve(String id, Session session) {
+        session.solver.solve(session.maxIterations, session.tolerance);
+        return new SolveSession(id, crosswordManager.toSolvedGrid(session.parsedGrid, session.solver));
+    }
+
+    private int getClueIndex(Session session, CrosswordCluePosition position) {
+        Integer clueIndex = session.clueIndices.get(position);
+        if (clueIndex == null)
+            throw new BadRequestException("No clue at " + position);
+        return clueIndex;
+    }
+
+    @Data
+    private static class Session {
+        private final ParsedGrid parsedGrid;
+        private final CrosswordGrid crosswordGrid;
+        private final Map<CrosswordCluePosition, Integer> clueIndices;
+        private final CrosswordSolver solver;
+        private final double tolerance;
+        private final int maxIterations;
+    }
+}
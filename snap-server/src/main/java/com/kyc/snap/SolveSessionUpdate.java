@@ -0,0 +1,32 @@
+package com.kyc.snap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kyc.snap.CrosswordCluesList.CrosswordClue;
+
+import lombok.Data;
+
+@Data
+public class SolveSessionUpdate {
+
+    private List<PinnedLetter> pinnedLetters = new ArrayList<>();
+    private List<RejectedAnswer> rejectedAnswers = new ArrayList<>();
+    private List<CrosswordClue> editedClues = new ArrayList<>();
+
+    @Data
+    public static class PinnedLetter {
+
+        private final int row;
+        private final int col;
+        // an empty letter unpins the cell
+        private final String letter;
+    }
+
+    @Data
+    public static class RejectedAnswer {
+
+        private final CrosswordCluePosition position;
+        private final String answer;
+    }
+}
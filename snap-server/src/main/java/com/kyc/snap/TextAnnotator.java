@@ -0,0 +1,16 @@
+package com.kyc.snap;
+
+import java.util.List;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+
+// Detects text in a batch of images, with one response per request in the same order
+interface TextAnnotator extends AutoCloseable {
+
+    List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests);
+
+    @Override
+    default void close() {
+    }
+}
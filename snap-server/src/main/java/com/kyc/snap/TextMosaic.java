@@ -0,0 +1,70 @@
+package com.kyc.snap;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.google.cloud.vision.v1.EntityAnnotation;
+import com.google.cloud.vision.v1.Vertex;
+import com.google.common.base.Joiner;
+
+import lombok.Data;
+
+@Data
+class TextMosaic {
+
+    private static final int MIN_PADDING = 8;
+
+    private final BufferedImage image;
+    private final int numImages;
+    private final int numColumns;
+    private final int slotWidth;
+    private final int slotHeight;
+    private final int padding;
+
+    static TextMosaic of(List<BufferedImage> images) {
+        int maxWidth = images.stream().mapToInt(BufferedImage::getWidth).max().orElse(0);
+        int maxHeight = images.stream().mapToInt(BufferedImage::getHeight).max().orElse(0);
+        // pad each image by half its size on every side so that Vision doesn't join text from neighboring images
+        int padding = Math.max(Math.max(maxWidth, maxHeight) / 2, MIN_PADDING);
+        int slotWidth = maxWidth + padding;
+        int slotHeight = maxHeight + padding;
+        int numColumns = (int) Math.ceil(Math.sqrt(images.size()));
+        int numRows = (images.size() + numColumns - 1) / numColumns;
+
+        BufferedImage mosaic = new BufferedImage(numColumns * slotWidth + padding, numRows * slotHeight + padding,
+            BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = mosaic.createGraphics();
+        g.setColor(Color.white);
+        g.fillRect(0, 0, mosaic.getWidth(), mosaic.getHeight());
+        for (int i = 0; i < images.size(); i++)
+            g.drawImage(images.get(i), padding + (i % numColumns) * slotWidth, padding + (i / numColumns) * slotHeight, null);
+        g.dispose();
+        return new TextMosaic(mosaic, images.size(), numColumns, slotWidth, slotHeight, padding);
+    }
+
+    List<String> toTexts(List<EntityAnnotation> annotations) {
+        List<List<String>> words = new ArrayList<>();
+        for (int i = 0; i < numImages; i++)
+            words.add(new ArrayList<>());
+        // the first annotation is all text in the mosaic, and the rest are individual words
+        for (EntityAnnotation annotation : annotations.subList(Math.min(1, annotations.size()), annotations.size())) {
+            List<Vertex> vertices = annotation.getBoundingPoly().getVerticesList();
+            if (vertices.isEmpty())
+                continue;
+            double centerX = vertices.stream().mapToInt(Vertex::getX).average().getAsDouble();
+            double centerY = vertices.stream().mapToInt(Vertex::getY).average().getAsDouble();
+            int col = (int) Math.floor((centerX - padding / 2.) / slotWidth);
+            int row = (int) Math.floor((centerY - padding / 2.) / slotHeight);
+            int index = row * numColumns + col;
+            if (col >= 0 && col < numColumns && row >= 0 && index < numImages)
+                words.get(index).add(annotation.getDescription());
+        }
+        return words.stream()
+            .map(imageWords -> Joiner.on(" ").join(imageWords))
+            .collect(Collectors.toList());
+    }
+}
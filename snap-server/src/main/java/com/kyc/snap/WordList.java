@@ -0,0 +1,106 @@
+package com.kyc.snap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// all dictionary words of one length, stored as sorted fixed-width uppercase ASCII
+class WordList {
+
+    private final ByteBuffer words;
+    private final int length;
+    private final int size;
+    // the letters of each word, from 0 for A to 25 for Z, copied onto the heap for fast access
+    private volatile byte[] letters;
+    // bitsets of the words with each letter at each position, indexed by 26 * position + letter
+    private volatile long[][] letterIndex;
+
+    WordList(ByteBuffer words, int length, int size) {
+        this.words = words;
+        this.length = length;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int length() {
+        return length;
+    }
+
+    // the index of the letter at the given position of the given word, from 0 for A to 25 for Z
+    int letter(int index, int position) {
+        return words.get(index * length + position) - 'A';
+    }
+
+    String get(int index) {
+        byte[] word = new byte[length];
+        for (int position = 0; position < length; position++)
+            word[position] = words.get(index * length + position);
+        return new String(word, StandardCharsets.US_ASCII);
+    }
+
+    // the letter of position p of word i is at index i * length() + p; must not be modified
+    byte[] letters() {
+        byte[] result = letters;
+        if (result == null) {
+            synchronized (this) {
+                if (letters == null) {
+                    byte[] newLetters = new byte[size * length];
+                    for (int i = 0; i < newLetters.length; i++)
+                        newLetters[i] = (byte) (words.get(i) - 'A');
+                    letters = newLetters;
+                }
+                result = letters;
+            }
+        }
+        return result;
+    }
+
+    // a bitset of the indices of the words with the given letter at the given position; must not be modified
+    long[] wordsWithLetter(int position, int letter) {
+        long[][] index = letterIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (letterIndex == null) {
+                    byte[] letters = letters();
+                    long[][] newIndex = new long[26 * length][(size + 63) / 64];
+                    for (int i = 0; i < size; i++)
+                        for (int p = 0; p < length; p++)
+                            newIndex[26 * p + letters[i * length + p]][i / 64] |= 1L << i;
+                    letterIndex = newIndex;
+                }
+                index = letterIndex;
+            }
+        }
+        return index[26 * position + letter];
+    }
+
+    // the index of the given word, or -1 if it isn't in the list
+    int indexOf(String word) {
+        if (word.length() != length)
+            return -1;
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, word);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private int compare(int index, String word) {
+        for (int position = 0; position < length; position++) {
+            int cmp = Integer.compare(words.get(index * length + position), word.charAt(position));
+            if (cmp != 0)
+                return cmp;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,225 @@
+package com.kyc.snap;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.ws.rs.BadRequestException;
+
+// A Thompson NFA over the letters A to Z, compiled from a regex with letters, ., [...], [^...], (...), |, *, + and ?, or
+// from a wildcard pattern where ? or . is any letter and * is any sequence of letters
+class WordPattern {
+
+    private static final int ALL_LETTERS = (1 << 26) - 1;
+
+    // state i consumes a letter in letterMasks[i] and moves to next1[i], or if its mask is 0, moves to next1[i] and
+    // next2[i] (if not -1) without consuming a letter; the match state has no next state
+    private final int[] letterMasks;
+    private final int[] next1;
+    private final int[] next2;
+    private final int matchState;
+    // the states reachable from each state without consuming a letter
+    private final BitSet[] closures;
+    private final BitSet start;
+
+    private WordPattern(List<int[]> states, int startState, int matchState) {
+        letterMasks = states.stream().mapToInt(state -> state[0]).toArray();
+        next1 = states.stream().mapToInt(state -> state[1]).toArray();
+        next2 = states.stream().mapToInt(state -> state[2]).toArray();
+        this.matchState = matchState;
+        closures = new BitSet[states.size()];
+        start = closure(startState);
+    }
+
+    static WordPattern compileRegex(String regex) {
+        Parser parser = new Parser(regex.toUpperCase());
+        Fragment fragment = parser.parseAlternation();
+        if (parser.pos != parser.regex.length())
+            throw new BadRequestException("Unexpected '" + parser.regex.charAt(parser.pos) + "' in pattern " + regex);
+        int matchState = parser.addState(0, -1, -1);
+        fragment.patch(parser.states, matchState);
+        return new WordPattern(parser.states, fragment.start, matchState);
+    }
+
+    static WordPattern compileWildcard(String wildcard) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : wildcard.toUpperCase().toCharArray())
+            if (c == '?' || c == '.')
+                regex.append('.');
+            else if (c == '*')
+                regex.append(".*");
+            else if (c >= 'A' && c <= 'Z')
+                regex.append(c);
+            else
+                throw new BadRequestException("Unexpected '" + c + "' in pattern " + wildcard);
+        return compileRegex(regex.toString());
+    }
+
+    BitSet start() {
+        return start;
+    }
+
+    // the states after reading the letter (from 0 for A to 25 for Z); empty if no word with this prefix can match
+    BitSet step(BitSet states, int letter) {
+        BitSet next = new BitSet(letterMasks.length);
+        for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1))
+            if ((letterMasks[state] & (1 << letter)) != 0)
+                next.or(closure(next1[state]));
+        return next;
+    }
+
+    boolean matches(BitSet states) {
+        return states.get(matchState);
+    }
+
+    private BitSet closure(int state) {
+        if (closures[state] == null) {
+            BitSet closure = new BitSet(letterMasks.length);
+            List<Integer> stack = new ArrayList<>();
+            stack.add(state);
+            while (!stack.isEmpty()) {
+                int s = stack.remove(stack.size() - 1);
+                if (closure.get(s))
+                    continue;
+                closure.set(s);
+                if (letterMasks[s] == 0 && s != matchState) {
+                    stack.add(next1[s]);
+                    if (next2[s] != -1)
+                        stack.add(next2[s]);
+                }
+            }
+            closures[state] = closure;
+        }
+        return closures[state];
+    }
+
+    // a partial NFA with a start state and the dangling next pointers (state * 2 + which) to patch
+    private static class Fragment {
+
+        private final int start;
+        private final List<Integer> danglingNexts;
+
+        Fragment(int start, List<Integer> danglingNexts) {
+            this.start = start;
+            this.danglingNexts = danglingNexts;
+        }
+
+        void patch(List<int[]> states, int target) {
+            for (int dangling : danglingNexts)
+                states.get(dangling / 2)[1 + dangling % 2] = target;
+        }
+    }
+
+    private static class Parser {
+
+        private final String regex;
+        private final List<int[]> states = new ArrayList<>();
+        private int pos = 0;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        int addState(int letterMask, int next1, int next2) {
+            states.add(new int[] { letterMask, next1, next2 });
+            return states.size() - 1;
+        }
+
+        Fragment parseAlternation() {
+            Fragment fragment = parseConcatenation();
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                Fragment other = parseConcatenation();
+                List<Integer> danglingNexts = new ArrayList<>(fragment.danglingNexts);
+                danglingNexts.addAll(other.danglingNexts);
+                fragment = new Fragment(addState(0, fragment.start, other.start), danglingNexts);
+            }
+            return fragment;
+        }
+
+        Fragment parseConcatenation() {
+            Fragment fragment = null;
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                Fragment next = parseRepetition();
+                if (fragment == null)
+                    fragment = next;
+                else {
+                    fragment.patch(states, next.start);
+                    fragment = new Fragment(fragment.start, next.danglingNexts);
+                }
+            }
+            if (fragment == null) {
+                // the empty pattern, which matches without consuming a letter
+                int state = addState(0, -1, -1);
+                List<Integer> danglingNexts = new ArrayList<>();
+                danglingNexts.add(state * 2);
+                fragment = new Fragment(state, danglingNexts);
+            }
+            return fragment;
+        }
+
+        Fragment parseRepetition() {
+            Fragment fragment = parseAtom();
+            while (pos < regex.length() && "*+?".indexOf(regex.charAt(pos)) != -1) {
+                char op = regex.charAt(pos++);
+                int split = addState(0, fragment.start, -1);
+                List<Integer> danglingNexts = new ArrayList<>();
+                danglingNexts.add(split * 2 + 1);
+                if (op == '?')
+                    danglingNexts.addAll(fragment.danglingNexts);
+                else
+                    fragment.patch(states, split);
+                fragment = new Fragment(op == '+' ? fragment.start : split, danglingNexts);
+            }
+            return fragment;
+        }
+
+        Fragment parseAtom() {
+            if (pos == regex.length())
+                throw new BadRequestException("Unexpected end of pattern " + regex);
+            char c = regex.charAt(pos++);
+            int letterMask;
+            if (c == '(') {
+                Fragment fragment = parseAlternation();
+                if (pos == regex.length() || regex.charAt(pos) != ')')
+                    throw new BadRequestException("Missing ')' in pattern " + regex);
+                pos++;
+                return fragment;
+            } else if (c == '.')
+                letterMask = ALL_LETTERS;
+            else if (c == '[')
+                letterMask = parseClass();
+            else if (c >= 'A' && c <= 'Z')
+                letterMask = 1 << (c - 'A');
+            else
+                throw new BadRequestException("Unexpected '" + c + "' in pattern " + regex);
+            int state = addState(letterMask, -1, -1);
+            List<Integer> danglingNexts = new ArrayList<>();
+            danglingNexts.add(state * 2);
+            return new Fragment(state, danglingNexts);
+        }
+
+        int parseClass() {
+            boolean negated = pos < regex.length() && regex.charAt(pos) == '^';
+            if (negated)
+                pos++;
+            int letterMask = 0;
+            while (pos < regex.length() && regex.charAt(pos) != ']') {
+                char from = regex.charAt(pos++);
+                char to = from;
+                if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+                    to = regex.charAt(pos + 1);
+                    pos += 2;
+                }
+                if (from < 'A' || to > 'Z' || from > to)
+                    throw new BadRequestException("Invalid character class in pattern " + regex);
+                for (char letter = from; letter <= to; letter++)
+                    letterMask |= 1 << (letter - 'A');
+            }
+            if (pos == regex.length())
+                throw new BadRequestException("Missing ']' in pattern " + regex);
+            pos++;
+            return negated ? ~letterMask & ALL_LETTERS : letterMask;
+        }
+    }
+}
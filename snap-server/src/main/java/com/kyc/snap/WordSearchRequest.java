@@ -0,0 +1,21 @@
+package com.kyc.snap;
+
+import lombok.Data;
+
+@Data
+public class WordSearchRequest {
+
+    private final String pattern;
+
+    private WordSearchSyntax syntax = WordSearchSyntax.WILDCARD;
+    // for paging through the matches in alphabetical order
+    private int offset = 0;
+    private int limit = 100;
+
+    public enum WordSearchSyntax {
+        // ? or . is any letter and * is any sequence of letters, e.g. ?A??E? or *QU*Z
+        WILDCARD,
+        // letters, ., [...], [^...], (...), |, *, + and ?, e.g. .*QU.*Z or [^AEIOU]+(ING|ED)
+        REGEX,
+    }
+}
@@ -0,0 +1,62 @@
+package com.kyc.snap;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Streams;
+import com.google.common.io.CharStreams;
+
+// wordplays.com rate limits clients that query more than once every 9 seconds, so wrap this in a RateLimitedClueProvider
+class WordplaysClueProvider implements ClueProvider {
+
+    private final String url;
+
+    WordplaysClueProvider(String url) {
+        this.url = url;
+    }
+
+    @Override
+    public List<CrosswordClueResult> solveClue(String clue, int numLetters) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Accept",
+                "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8");
+            connection.setRequestProperty("Accept-Language", "en-US,en;q=0.9");
+            connection.setRequestProperty("Cache-Control", "max-age=0");
+            connection.setRequestProperty("Connection", "keep-alive");
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            connection.setRequestProperty("User-Agent",
+                "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_12_6) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/62.0.3202.94 Safari/537.36");
+            try (PrintWriter writer = new PrintWriter(connection.getOutputStream())) {
+                writer.print(String.format(
+                    "clue=%1$s&pattern=%2$s&phrase=%1$s&anagram-patt=%2$s&anagram-len=&roman-num=&vand=1&rejected=&cks=&ishm=&mvr=&ty=0",
+                    URLEncoder.encode(clue, "UTF-8"), Joiner.on("").join(Collections.nCopies(numLetters, "?"))));
+            }
+            Element wordList = Jsoup.parse(CharStreams.toString(new InputStreamReader(connection.getInputStream(), "UTF-8")))
+                .getElementById("wordlists");
+            return Streams.concat(wordList.getElementsByClass("even").stream(), wordList.getElementsByClass("odd").stream())
+                .map(row -> {
+                    String answer = Iterables.getOnlyElement(row.getElementsByTag("a")).text();
+                    int numStars = Iterables.getOnlyElement(row.getElementsByClass("stars")).children().size();
+                    return new CrosswordClueResult(answer, numStars);
+                })
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
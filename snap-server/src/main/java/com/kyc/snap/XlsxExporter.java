@@ -0,0 +1,262 @@
+package com.kyc.snap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+
+// A minimal Office Open XML workbook with one sheet of square cells, with the text, color and borders of each square
+class XlsxExporter implements GridExporter {
+
+    private static final String SPREADSHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String PACKAGE_RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String RELATIONSHIPS_NS =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String CONTENT_TYPES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+            + "<Override PartName=\"/xl/worksheets/sheet1.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+            + "<Override PartName=\"/xl/styles.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+            + "</Types>";
+    private static final String ROOT_RELATIONSHIPS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Relationships xmlns=\"" + PACKAGE_RELATIONSHIPS_NS + "\">"
+            + "<Relationship Id=\"rId1\" Target=\"xl/workbook.xml\" "
+            + "Type=\"" + RELATIONSHIPS_NS + "/officeDocument\"/>"
+            + "</Relationships>";
+    private static final String WORKBOOK_RELATIONSHIPS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Relationships xmlns=\"" + PACKAGE_RELATIONSHIPS_NS + "\">"
+            + "<Relationship Id=\"rId1\" Target=\"worksheets/sheet1.xml\" Type=\"" + RELATIONSHIPS_NS + "/worksheet\"/>"
+            + "<Relationship Id=\"rId2\" Target=\"styles.xml\" Type=\"" + RELATIONSHIPS_NS + "/styles\"/>"
+            + "</Relationships>";
+    private static final double COLUMN_WIDTH = 5;
+    private static final double ROW_HEIGHT = 30;
+
+    private final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+    @Override
+    public String getFileExtension() {
+        return "xlsx";
+    }
+
+    @Override
+    public String getMediaType() {
+        return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    }
+
+    @Override
+    public void export(ExportRequest request, OutputStream output) throws IOException {
+        ParsedGrid parsedGrid = request.getParsedGrid();
+        ParsedGridSquare[][] squares = new ParsedGridSquare[parsedGrid.getNumRows()][parsedGrid.getNumCols()];
+        // a cell style for each distinct combination of colors, numbered from 1 after the default style
+        Map<List<Integer>, Integer> styles = new LinkedHashMap<>();
+        for (ParsedGridSquare square : parsedGrid.getSquares()) {
+            squares[square.getRow()][square.getCol()] = square;
+            styles.putIfAbsent(styleKey(square), styles.size() + 1);
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(output);
+        try {
+            writeEntry(zip, "[Content_Types].xml", CONTENT_TYPES);
+            writeEntry(zip, "_rels/.rels", ROOT_RELATIONSHIPS);
+            writeEntry(zip, "xl/_rels/workbook.xml.rels", WORKBOOK_RELATIONSHIPS);
+
+            XMLStreamWriter xml = startEntry(zip, "xl/workbook.xml", "workbook");
+            xml.writeNamespace("r", RELATIONSHIPS_NS);
+            xml.writeStartElement("sheets");
+            xml.writeEmptyElement("sheet");
+            xml.writeAttribute("name", sanitizeSheetName(request.getTitle()));
+            xml.writeAttribute("sheetId", "1");
+            xml.writeAttribute("r", RELATIONSHIPS_NS, "id", "rId1");
+            xml.writeEndElement();
+            endEntry(zip, xml);
+
+            xml = startEntry(zip, "xl/styles.xml", "styleSheet");
+            writeStyles(xml, styles);
+            endEntry(zip, xml);
+
+            xml = startEntry(zip, "xl/worksheets/sheet1.xml", "worksheet");
+            writeSheet(xml, squares, styles);
+            endEntry(zip, xml);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        zip.finish();
+    }
+
+    private static void writeStyles(XMLStreamWriter xml, Map<List<Integer>, Integer> styles)
+            throws XMLStreamException {
+        xml.writeStartElement("fonts");
+        xml.writeAttribute("count", "1");
+        xml.writeStartElement("font");
+        xml.writeEmptyElement("sz");
+        xml.writeAttribute("val", "11");
+        xml.writeEndElement();
+        xml.writeEndElement();
+
+        // the first two fills are reserved
+        xml.writeStartElement("fills");
+        xml.writeAttribute("count", String.valueOf(styles.size() + 2));
+        for (String patternType : Arrays.asList("none", "gray125")) {
+            xml.writeStartElement("fill");
+            xml.writeEmptyElement("patternFill");
+            xml.writeAttribute("patternType", patternType);
+            xml.writeEndElement();
+        }
+        for (List<Integer> style : styles.keySet()) {
+            xml.writeStartElement("fill");
+            xml.writeStartElement("patternFill");
+            xml.writeAttribute("patternType", "solid");
+            xml.writeEmptyElement("fgColor");
+            xml.writeAttribute("rgb", toArgb(style.get(0)));
+            xml.writeEndElement();
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+
+        xml.writeStartElement("borders");
+        xml.writeAttribute("count", String.valueOf(styles.size() + 1));
+        xml.writeEmptyElement("border");
+        for (List<Integer> style : styles.keySet()) {
+            xml.writeStartElement("border");
+            xml.writeEmptyElement("left");
+            writeBorder(xml, "right", style.get(1));
+            xml.writeEmptyElement("top");
+            writeBorder(xml, "bottom", style.get(2));
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+
+        xml.writeStartElement("cellStyleXfs");
+        xml.writeAttribute("count", "1");
+        xml.writeEmptyElement("xf");
+        xml.writeEndElement();
+
+        xml.writeStartElement("cellXfs");
+        xml.writeAttribute("count", String.valueOf(styles.size() + 1));
+        xml.writeEmptyElement("xf");
+        for (int style : styles.values()) {
+            xml.writeStartElement("xf");
+            xml.writeAttribute("fillId", String.valueOf(style + 1));
+            xml.writeAttribute("borderId", String.valueOf(style));
+            xml.writeAttribute("applyFill", "1");
+            xml.writeAttribute("applyBorder", "1");
+            xml.writeAttribute("applyAlignment", "1");
+            xml.writeEmptyElement("alignment");
+            xml.writeAttribute("horizontal", "center");
+            xml.writeAttribute("vertical", "center");
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+    }
+
+    private static void writeBorder(XMLStreamWriter xml, String side, int rgb) throws XMLStreamException {
+        xml.writeStartElement(side);
+        xml.writeAttribute("style", "thin");
+        xml.writeEmptyElement("color");
+        xml.writeAttribute("rgb", toArgb(rgb));
+        xml.writeEndElement();
+    }
+
+    private static void writeSheet(XMLStreamWriter xml, ParsedGridSquare[][] squares,
+            Map<List<Integer>, Integer> styles) throws XMLStreamException {
+        int numCols = squares.length == 0 ? 0 : squares[0].length;
+        if (numCols > 0) {
+            xml.writeStartElement("cols");
+            xml.writeEmptyElement("col");
+            xml.writeAttribute("min", "1");
+            xml.writeAttribute("max", String.valueOf(numCols));
+            xml.writeAttribute("width", String.valueOf(COLUMN_WIDTH));
+            xml.writeAttribute("customWidth", "1");
+            xml.writeEndElement();
+        }
+        xml.writeStartElement("sheetData");
+        for (int row = 0; row < squares.length; row++) {
+            xml.writeStartElement("row");
+            xml.writeAttribute("r", String.valueOf(row + 1));
+            xml.writeAttribute("ht", String.valueOf(ROW_HEIGHT));
+            xml.writeAttribute("customHeight", "1");
+            for (int col = 0; col < numCols; col++) {
+                ParsedGridSquare square = squares[row][col];
+                if (square == null)
+                    continue;
+                xml.writeStartElement("c");
+                xml.writeAttribute("r", toColumnName(col) + (row + 1));
+                xml.writeAttribute("s", String.valueOf(styles.get(styleKey(square))));
+                if (!square.getText().isEmpty()) {
+                    xml.writeAttribute("t", "inlineStr");
+                    xml.writeStartElement("is");
+                    xml.writeStartElement("t");
+                    xml.writeCharacters(square.getText());
+                    xml.writeEndElement();
+                    xml.writeEndElement();
+                }
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+    }
+
+    private static List<Integer> styleKey(ParsedGridSquare square) {
+        return Arrays.asList(square.getRgb(), square.getRightBorderRgb(), square.getBottomBorderRgb());
+    }
+
+    private XMLStreamWriter startEntry(ZipOutputStream zip, String name, String rootElement)
+            throws IOException, XMLStreamException {
+        zip.putNextEntry(new ZipEntry(name));
+        XMLStreamWriter xml = xmlOutputFactory.createXMLStreamWriter(zip, "UTF-8");
+        xml.writeStartDocument("UTF-8", "1.0");
+        xml.setDefaultNamespace(SPREADSHEET_NS);
+        xml.writeStartElement(rootElement);
+        xml.writeDefaultNamespace(SPREADSHEET_NS);
+        return xml;
+    }
+
+    private static void endEntry(ZipOutputStream zip, XMLStreamWriter xml) throws IOException, XMLStreamException {
+        xml.writeEndDocument();
+        // closing the writer doesn't close the zip
+        xml.close();
+        zip.closeEntry();
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, String contents) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(contents.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static String toArgb(int rgb) {
+        return String.format("FF%06X", rgb & 0xffffff);
+    }
+
+    private static String toColumnName(int col) {
+        StringBuilder name = new StringBuilder();
+        for (int n = col + 1; n > 0; n = (n - 1) / 26)
+            name.insert(0, (char) ('A' + (n - 1) % 26));
+        return name.toString();
+    }
+
+    // sheet names are at most 31 characters, without []:*?/\
+    private static String sanitizeSheetName(String title) {
+        String name = title.replaceAll("[\\[\\]:*?/\\\\]", " ").trim();
+        if (name.isEmpty())
+            return "Sheet1";
+        return name.length() > 31 ? name.substring(0, 31) : name;
+    }
+}
@@ -0,0 +1,98 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AnagramIndexTest {
+
+    // few enough letters that most queries have anagrams
+    private static final String ALPHABET = "AEIRST";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(0);
+    private List<String> words;
+    private AnagramIndex anagramIndex;
+
+    @Before
+    public void setUp() throws IOException {
+        TreeSet<String> wordSet = new TreeSet<>();
+        for (int i = 0; i < 3000; i++)
+            wordSet.add(randomLetters(1 + random.nextInt(7)));
+        words = new ArrayList<>(wordSet);
+        anagramIndex = new AnagramIndex(TestDictionaries.of(folder.getRoot(), words.toArray(new String[0])));
+    }
+
+    @Test
+    public void testFindAnagrams() {
+        for (int i = 0; i < 500; i++) {
+            String letters = randomLetters(1 + random.nextInt(7));
+            List<String> expected = new ArrayList<>();
+            for (String word : words)
+                if (sorted(word).equals(sorted(letters)))
+                    expected.add(word);
+            assertEquals(letters, expected, anagramIndex.findAnagrams(letters));
+        }
+    }
+
+    @Test
+    public void testFindSubanagrams() {
+        for (int i = 0; i < 500; i++) {
+            String letters = randomLetters(random.nextInt(10));
+            int minLength = 1 + random.nextInt(4);
+            int limit = 1 + random.nextInt(i % 2 == 0 ? 10 : 1000);
+            List<String> expected = new ArrayList<>();
+            for (String word : words)
+                if (word.length() >= minLength && fits(word, letters))
+                    expected.add(word);
+            expected.sort(Comparator.comparingInt(String::length).reversed().thenComparing(Comparator.naturalOrder()));
+            expected = expected.subList(0, Math.min(limit, expected.size()));
+            assertEquals(letters + " " + minLength + " " + limit, expected,
+                anagramIndex.findSubanagrams(letters, minLength, limit));
+        }
+    }
+
+    @Test
+    public void testIgnoresCaseAndOtherCharacters() {
+        String word = words.get(words.size() / 2);
+        assertEquals(anagramIndex.findAnagrams(word), anagramIndex.findAnagrams(" " + word.toLowerCase() + "-!"));
+        assertEquals(anagramIndex.findSubanagrams(word, 2, 100),
+            anagramIndex.findSubanagrams(word.toLowerCase() + " 7", 2, 100));
+    }
+
+    private String randomLetters(int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++)
+            letters[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        return new String(letters);
+    }
+
+    private static String sorted(String letters) {
+        char[] chars = letters.toCharArray();
+        Arrays.sort(chars);
+        return new String(chars);
+    }
+
+    private static boolean fits(String word, String letters) {
+        int[] counts = new int[26];
+        for (char c : letters.toCharArray())
+            counts[c - 'A']++;
+        for (char c : word.toCharArray())
+            if (--counts[c - 'A'] < 0)
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package com.kyc.snap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.kyc.snap.ParseGridRequest.ClusteringMode;
+
+/**
+ * Times clustering the square and border colors of a grid with each clustering mode, for several grid sizes and
+ * numbers of clusters. The colors are a few palette colors with noise, as sampled from a scanned puzzle.
+ */
+public class ColorQuantizerBenchmark {
+
+    private static final int[] PALETTE = { 0xffffff, 0x101010, 0xcccccc, 0x3366cc };
+    private static final int NUM_WARMUP_RUNS = 200;
+    private static final int NUM_RUNS = 500;
+
+    public static void main(String[] args) {
+        ImageUtils.load();
+        for (int size : new int[] { 15, 30, 60 })
+            for (int numClusters : new int[] { 2, 4 }) {
+                // a color and two border colors for each square
+                int[] rgbs = noisyColors(3 * size * size, numClusters, new Random(size));
+                StringBuilder line = new StringBuilder(String.format("%dx%d grid, %d colors, %d clusters:",
+                    size, size, rgbs.length, numClusters));
+                for (ClusteringMode mode : ClusteringMode.values())
+                    line.append(String.format(" %s %.3f ms", mode, medianMillis(rgbs, numClusters, mode)));
+                System.out.println(line);
+            }
+    }
+
+    private static double medianMillis(int[] rgbs, int numClusters, ClusteringMode mode) {
+        for (int run = 0; run < NUM_WARMUP_RUNS; run++)
+            ImageUtils.cluster(rgbs, numClusters, mode);
+        long[] times = new long[NUM_RUNS];
+        for (int run = 0; run < NUM_RUNS; run++) {
+            long startTime = System.nanoTime();
+            ImageUtils.cluster(rgbs, numClusters, mode);
+            times[run] = System.nanoTime() - startTime;
+        }
+        Arrays.sort(times);
+        return times[NUM_RUNS / 2] / 1e6;
+    }
+
+    private static int[] noisyColors(int numColors, int numPaletteColors, Random random) {
+        int[] rgbs = new int[numColors];
+        for (int i = 0; i < numColors; i++) {
+            int rgb = PALETTE[random.nextInt(numPaletteColors)];
+            int noise = random.nextInt(16) - 8;
+            int red = Math.max(0, Math.min(255, (rgb >> 16 & 0xff) + noise));
+            int green = Math.max(0, Math.min(255, (rgb >> 8 & 0xff) + noise));
+            int blue = Math.max(0, Math.min(255, (rgb & 0xff) + noise));
+            rgbs[i] = red << 16 | green << 8 | blue;
+        }
+        return rgbs;
+    }
+}
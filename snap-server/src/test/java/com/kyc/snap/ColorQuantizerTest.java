@@ -0,0 +1,68 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.kyc.snap.ParseGridRequest.ClusteringMode;
+
+public class ColorQuantizerTest {
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        ImageUtils.load();
+    }
+
+    @Test
+    public void testDeterministic() {
+        int[] rgbs = noisyColors(new int[] { 0xffffff, 0x000000, 0x3366cc }, 2000, 40);
+        int[] first = clusterRgbs(ColorQuantizer.cluster(rgbs, 3, 0), rgbs);
+        int[] second = clusterRgbs(ColorQuantizer.cluster(rgbs, 3, 0), rgbs);
+        for (int i = 0; i < rgbs.length; i++)
+            assertEquals(first[i], second[i]);
+    }
+
+    @Test
+    public void testSameClustersAsOpenCV() {
+        int[][] palettes = {
+            { 0xffffff, 0x000000 },
+            { 0xffffff, 0x000000, 0xcccccc },
+            { 0xf5f0e1, 0x202020, 0x3366cc, 0xcc3333 },
+        };
+        for (int[] palette : palettes) {
+            int[] rgbs = noisyColors(palette, 5000, 24);
+            int[] histogram = clusterRgbs(ImageUtils.cluster(rgbs, palette.length, ClusteringMode.HISTOGRAM), rgbs);
+            int[] openCV = clusterRgbs(ImageUtils.cluster(rgbs, palette.length, ClusteringMode.OPENCV), rgbs);
+            // the cluster colors may differ slightly, but every pair of colors is grouped the same way
+            for (int i = 0; i < rgbs.length; i += 7)
+                for (int j = i + 1; j < rgbs.length; j += 13)
+                    assertEquals(openCV[i] == openCV[j], histogram[i] == histogram[j]);
+        }
+    }
+
+    // colors scattered around each color of the palette, with many exact duplicates as in real grids
+    private static int[] noisyColors(int[] palette, int count, int noise) {
+        Random random = new Random(palette.length);
+        int[] rgbs = new int[count];
+        for (int i = 0; i < count; i++) {
+            int base = palette[random.nextInt(palette.length)];
+            int rgb = 0;
+            for (int shift = 0; shift < 24; shift += 8) {
+                int channel = (base >> shift & 0xff) + random.nextInt(noise + 1) - noise / 2;
+                rgb |= Math.max(0, Math.min(255, channel)) << shift;
+            }
+            rgbs[i] = rgb;
+        }
+        return rgbs;
+    }
+
+    private static int[] clusterRgbs(ColorClusters clusters, int[] rgbs) {
+        int[] clusterRgbs = new int[rgbs.length];
+        for (int i = 0; i < rgbs.length; i++)
+            clusterRgbs[i] = clusters.get(rgbs[i], -1);
+        return clusterRgbs;
+    }
+}
@@ -0,0 +1,134 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
+import com.kyc.snap.CrosswordFiller.Fill;
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+
+public class CrosswordFillerTest {
+
+    private static final String[] WORDS = { "AT", "AN", "TO", "NO", "IT", "IN", "ON", "TA" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // a 2x2 grid of white squares, with clues 1 and 3 across and 1 and 2 down
+    private final List<CrosswordBlank> blanks = Arrays.asList(
+        new CrosswordBlank(new CrosswordCluePosition("1", CrosswordClueOrientation.ACROSS), 0, 0, 2),
+        new CrosswordBlank(new CrosswordCluePosition("3", CrosswordClueOrientation.ACROSS), 1, 0, 2),
+        new CrosswordBlank(new CrosswordCluePosition("1", CrosswordClueOrientation.DOWN), 0, 0, 2),
+        new CrosswordBlank(new CrosswordCluePosition("2", CrosswordClueOrientation.DOWN), 0, 1, 2));
+    private final List<List<CrosswordClueResult>> results = Arrays.asList(
+        Arrays.asList(new CrosswordClueResult("AT", 3), new CrosswordClueResult("IT", 1)),
+        Arrays.asList(new CrosswordClueResult("NO", 2), new CrosswordClueResult("ZZ", 5)),
+        Arrays.asList(new CrosswordClueResult("IN", 0)),
+        new ArrayList<>());
+
+    @Test
+    public void testFindsBestFills() throws IOException {
+        CrosswordFiller filler = new CrosswordFiller(TestDictionaries.of(folder.getRoot(), WORDS), blanks, results);
+        List<Fill> fills = filler.findFills(5, 10_000);
+
+        // every valid fill and its score, by trying every word in every blank
+        List<List<String>> validFills = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        for (String across1 : WORDS)
+            for (String across3 : WORDS)
+                for (String down1 : WORDS)
+                    for (String down2 : WORDS) {
+                        List<String> words = Arrays.asList(across1, across3, down1, down2);
+                        if (new HashSet<>(words).size() == words.size() && isConsistent(words)) {
+                            validFills.add(words);
+                            scores.add(score(words));
+                        }
+                    }
+        scores.sort(Collections.reverseOrder());
+
+        assertEquals(5, fills.size());
+        for (int i = 0; i < fills.size(); i++) {
+            List<String> words = words(filler, fills.get(i));
+            assertTrue(words + " is not a valid fill", validFills.contains(words));
+            assertEquals(score(words), fills.get(i).getScore());
+            assertEquals(scores.get(i).intValue(), fills.get(i).getScore());
+        }
+    }
+
+    @Test
+    public void testNoFills() throws IOException {
+        // four blanks can't be filled with two different words
+        CrosswordFiller filler = new CrosswordFiller(TestDictionaries.of(folder.getRoot(), "AA", "AB"), blanks,
+            results);
+        assertEquals(Collections.emptyList(), filler.findFills(5, 10_000));
+    }
+
+    @Test
+    public void testUnboundedTimeBudget() throws IOException {
+        CrosswordFiller filler = new CrosswordFiller(TestDictionaries.of(folder.getRoot(), WORDS), blanks, results);
+        assertEquals(Arrays.asList("AT", "NO", "AN", "TO"), words(filler, filler.findFills(1, Long.MAX_VALUE).get(0)));
+    }
+
+    @Test
+    public void testZeroTimeBudget() throws IOException {
+        // a 6x6 grid of white squares with a large dictionary, which can't be searched exhaustively
+        Random random = new Random(0);
+        String[] words = new String[50_000];
+        for (int i = 0; i < words.length; i++) {
+            char[] word = new char[6];
+            for (int j = 0; j < word.length; j++)
+                word[j] = (char) ('A' + random.nextInt(26));
+            words[i] = new String(word);
+        }
+        List<CrosswordBlank> bigBlanks = new ArrayList<>();
+        List<List<CrosswordClueResult>> bigResults = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            String number = String.valueOf(i + 1);
+            bigBlanks.add(new CrosswordBlank(new CrosswordCluePosition(number, CrosswordClueOrientation.ACROSS), i, 0, 6));
+            bigBlanks.add(new CrosswordBlank(new CrosswordCluePosition(number, CrosswordClueOrientation.DOWN), 0, i, 6));
+            bigResults.add(new ArrayList<>());
+            bigResults.add(new ArrayList<>());
+        }
+        CrosswordFiller filler =
+            new CrosswordFiller(TestDictionaries.of(folder.getRoot(), words), bigBlanks, bigResults);
+
+        long startTime = System.nanoTime();
+        filler.findFills(5, 0);
+        assertTrue(System.nanoTime() - startTime < 1_000_000_000L);
+    }
+
+    private boolean isConsistent(List<String> words) {
+        return words.get(0).charAt(0) == words.get(2).charAt(0)
+            && words.get(0).charAt(1) == words.get(3).charAt(0)
+            && words.get(1).charAt(0) == words.get(2).charAt(1)
+            && words.get(1).charAt(1) == words.get(3).charAt(1);
+    }
+
+    private int score(List<String> words) {
+        int score = 0;
+        for (int i = 0; i < words.size(); i++)
+            for (CrosswordClueResult result : results.get(i))
+                if (result.getAnswer().equals(words.get(i)))
+                    score += 1 + result.getConfidence();
+        return score;
+    }
+
+    private static List<String> words(CrosswordFiller filler, Fill fill) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < fill.getWordIndices().length; i++)
+            words.add(filler.getWord(i, fill.getWordIndices()[i]));
+        return words;
+    }
+}
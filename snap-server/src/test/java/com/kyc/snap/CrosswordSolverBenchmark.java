@@ -0,0 +1,134 @@
+package com.kyc.snap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+
+/**
+ * Times the crossword solver on a 21x21 grid at several parallelisms, and checks that they all give the same letter
+ * probabilities. Run with the path of a compiled dictionary (see CompileDictionaryCommand), or with no arguments to use
+ * a generated dictionary of 300,000 random words.
+ */
+public class CrosswordSolverBenchmark {
+
+    private static final int SIZE = 21;
+    private static final int NUM_RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        DictionaryManager dictionaryManager = DictionaryManager.map(args.length > 0 ? args[0] : randomDictionary());
+        List<CrosswordBlank> blanks = blanks();
+        List<List<CrosswordClueResult>> results = results(dictionaryManager, blanks);
+        System.out.println(blanks.size() + " clues");
+
+        double[] expectedLetterProbs = null;
+        for (int parallelism : new int[] { 1, 2, 4, Runtime.getRuntime().availableProcessors() }) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            for (double tolerance : new double[] { 0, 1e-4 }) {
+                long[] times = new long[NUM_RUNS];
+                CrosswordSolver solver = null;
+                int numIterations = 0;
+                for (int run = 0; run < NUM_RUNS; run++) {
+                    long startTime = System.nanoTime();
+                    solver = new CrosswordSolver(dictionaryManager, SIZE, SIZE, blanks, results, 0, pool);
+                    numIterations = solver.solve(4, tolerance);
+                    times[run] = System.nanoTime() - startTime;
+                }
+                Arrays.sort(times);
+                double[] letterProbs = letterProbs(solver);
+                if (tolerance == 0 && expectedLetterProbs == null)
+                    expectedLetterProbs = letterProbs;
+                System.out.printf("parallelism %d, tolerance %s: %d iterations, median %.1f ms%s%n", parallelism,
+                    tolerance, numIterations, times[NUM_RUNS / 2] / 1e6,
+                    tolerance == 0 && !Arrays.equals(letterProbs, expectedLetterProbs) ? " (DIFFERENT RESULT)" : "");
+            }
+            pool.shutdown();
+        }
+    }
+
+    private static String randomDictionary() throws IOException {
+        Random random = new Random(0);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 300_000; i++) {
+            char[] word = new char[3 + random.nextInt(SIZE - 2)];
+            for (int j = 0; j < word.length; j++)
+                word[j] = (char) ('A' + random.nextInt(26));
+            words.add(new String(word));
+        }
+        File wordList = File.createTempFile("words", ".txt");
+        File dictionary = File.createTempFile("dictionary", ".bin");
+        wordList.deleteOnExit();
+        dictionary.deleteOnExit();
+        Files.write(wordList.toPath(), words, StandardCharsets.UTF_8);
+        ByteBuffer compiled = DictionaryManager.compile(wordList.getPath());
+        try (FileChannel output = FileChannel.open(dictionary.toPath(), StandardOpenOption.WRITE)) {
+            while (compiled.hasRemaining())
+                output.write(compiled);
+        }
+        return dictionary.getPath();
+    }
+
+    // the runs of 3 or more white squares, with black squares in a fixed symmetric pattern
+    private static List<CrosswordBlank> blanks() {
+        boolean[][] black = new boolean[SIZE][SIZE];
+        for (int row = 0; row < SIZE; row++)
+            for (int col = 0; col < SIZE; col++)
+                if ((row * 7 + col * 3) % 11 == 0)
+                    black[row][col] = black[SIZE - 1 - row][SIZE - 1 - col] = true;
+        List<CrosswordBlank> blanks = new ArrayList<>();
+        for (CrosswordClueOrientation orientation : CrosswordClueOrientation.values())
+            for (int i = 0; i < SIZE; i++) {
+                int start = 0;
+                for (int j = 0; j <= SIZE; j++) {
+                    int row = orientation == CrosswordClueOrientation.ACROSS ? i : j;
+                    int col = orientation == CrosswordClueOrientation.ACROSS ? j : i;
+                    if (j < SIZE && !black[row][col])
+                        continue;
+                    if (j - start >= 3) {
+                        CrosswordCluePosition position =
+                            new CrosswordCluePosition(String.valueOf(blanks.size()), orientation);
+                        blanks.add(orientation == CrosswordClueOrientation.ACROSS
+                            ? new CrosswordBlank(position, i, start, j - start)
+                            : new CrosswordBlank(position, start, i, j - start));
+                    }
+                    start = j + 1;
+                }
+            }
+        return blanks;
+    }
+
+    // a few suggested answers for each clue, as a clue provider would give
+    private static List<List<CrosswordClueResult>> results(DictionaryManager dictionaryManager,
+            List<CrosswordBlank> blanks) {
+        Random random = new Random(0);
+        List<List<CrosswordClueResult>> results = new ArrayList<>();
+        for (CrosswordBlank blank : blanks) {
+            WordList words = dictionaryManager.getWordsWithLength(blank.getLength());
+            List<CrosswordClueResult> clueResults = new ArrayList<>();
+            for (int i = 0; i < 3 && words.size() > 0; i++)
+                clueResults.add(new CrosswordClueResult(words.get(random.nextInt(words.size())), random.nextInt(3)));
+            results.add(clueResults);
+        }
+        return results;
+    }
+
+    private static double[] letterProbs(CrosswordSolver solver) {
+        double[] letterProbs = new double[26 * SIZE * SIZE];
+        for (int row = 0; row < SIZE; row++)
+            for (int col = 0; col < SIZE; col++)
+                for (int letter = 0; letter < 26; letter++)
+                    letterProbs[26 * (row * SIZE + col) + letter] = solver.getLetterProb(row, col, letter);
+        return letterProbs;
+    }
+}
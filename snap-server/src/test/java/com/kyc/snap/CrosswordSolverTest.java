@@ -0,0 +1,75 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+
+public class CrosswordSolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DictionaryManager dictionaryManager;
+
+    // a 2x2 grid of white squares, with clues 1 and 3 across and 1 and 2 down
+    private final List<CrosswordBlank> blanks = Arrays.asList(
+        new CrosswordBlank(new CrosswordCluePosition("1", CrosswordClueOrientation.ACROSS), 0, 0, 2),
+        new CrosswordBlank(new CrosswordCluePosition("3", CrosswordClueOrientation.ACROSS), 1, 0, 2),
+        new CrosswordBlank(new CrosswordCluePosition("1", CrosswordClueOrientation.DOWN), 0, 0, 2),
+        new CrosswordBlank(new CrosswordCluePosition("2", CrosswordClueOrientation.DOWN), 0, 1, 2));
+    private final List<List<CrosswordClueResult>> results = Arrays.asList(
+        Arrays.asList(new CrosswordClueResult("AT", 3)), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+
+    @Before
+    public void setUp() throws IOException {
+        dictionaryManager = TestDictionaries.of(folder.getRoot(), "AT", "AN", "TO", "NO", "IT", "IN", "ON", "TA");
+    }
+
+    @Test
+    public void testUnpinRecovers() {
+        CrosswordSolver expected = newSolver();
+        expected.solve(100, 1e-12);
+
+        CrosswordSolver solver = newSolver();
+        solver.solve(100, 1e-12);
+        solver.pinLetter(0, 1, 'Z' - 'A');
+        solver.solve(100, 1e-12);
+        assertEquals(1, solver.getLetterProb(0, 1, 'Z' - 'A'), 0);
+
+        solver.pinLetter(0, 1, -1);
+        for (int letter = 0; letter < 26; letter++)
+            assertEquals(1. / 26, solver.getLetterProb(0, 1, letter), 0);
+        solver.solve(100, 1e-12);
+        for (int row = 0; row < 2; row++)
+            for (int col = 0; col < 2; col++)
+                for (int letter = 0; letter < 26; letter++)
+                    assertEquals(expected.getLetterProb(row, col, letter), solver.getLetterProb(row, col, letter), 1e-6);
+    }
+
+    @Test
+    public void testIsInClue() {
+        CrosswordSolver solver = new CrosswordSolver(dictionaryManager, 3, 3, blanks, results, 0, new ForkJoinPool(1));
+        assertTrue(solver.isInClue(1, 1));
+        assertFalse(solver.isInClue(2, 2));
+        assertFalse(solver.isInClue(-1, 0));
+        assertFalse(solver.isInClue(0, 3));
+    }
+
+    private CrosswordSolver newSolver() {
+        return new CrosswordSolver(dictionaryManager, 2, 2, blanks, results, 0, new ForkJoinPool(1));
+    }
+}
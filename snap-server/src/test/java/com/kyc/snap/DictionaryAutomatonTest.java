@@ -0,0 +1,115 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.BadRequestException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DictionaryAutomatonTest {
+
+    // few enough letters that most patterns have matches
+    private static final String ALPHABET = "ABCEX";
+    private static final String[] REGEXES = {
+        "CAB", "C.B", ".*", "", "A|B|", "[AEIOU]+", "[^AEIOU]*E", "[A-CX-Z]..", ".?.?.?", "A+B+",
+        "(AB|C)*", "((A|B)*C*)*", "(A*)*B", "(A|B*)*X", "()", "()*A", "(|A)B?", "(A|)(B|)(C|)", "a.*x", "X?E+X?",
+    };
+    private static final String[] WILDCARDS = { "A?", "*", "?*?", "*AB*", "c??e", "..X*", "" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<String> words;
+    private DictionaryAutomaton dictionaryAutomaton;
+
+    @Before
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        TreeSet<String> wordSet = new TreeSet<>();
+        for (int i = 0; i < 3000; i++) {
+            char[] word = new char[1 + random.nextInt(6)];
+            for (int j = 0; j < word.length; j++)
+                word[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            wordSet.add(new String(word));
+        }
+        words = new ArrayList<>(wordSet);
+        dictionaryAutomaton =
+            new DictionaryAutomaton(TestDictionaries.of(folder.getRoot(), words.toArray(new String[0])));
+    }
+
+    @Test
+    public void testContainsEveryWord() {
+        assertEquals(words.size(), dictionaryAutomaton.numWords());
+        assertEquals(words, dictionaryAutomaton.search(WordPattern.compileRegex(".*"), 0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testSearchRegex() {
+        for (String regex : REGEXES)
+            assertEquals(regex, matches(regex),
+                dictionaryAutomaton.search(WordPattern.compileRegex(regex), 0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testSearchWildcard() {
+        for (String wildcard : WILDCARDS) {
+            String regex = wildcard.replace("?", ".").replace("*", ".*");
+            assertEquals(wildcard, matches(regex),
+                dictionaryAutomaton.search(WordPattern.compileWildcard(wildcard), 0, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void testPaging() {
+        for (String regex : REGEXES) {
+            WordPattern pattern = WordPattern.compileRegex(regex);
+            List<String> pages = new ArrayList<>();
+            for (int offset = 0; ; offset += 7) {
+                List<String> page = dictionaryAutomaton.search(pattern, offset, 7);
+                pages.addAll(page);
+                if (page.size() < 7)
+                    break;
+            }
+            assertEquals(regex, matches(regex), pages);
+        }
+    }
+
+    @Test
+    public void testMalformedPatterns() {
+        for (String regex : new String[] { "(", "A)", "(A|B", "[AB", "[Z-A]", "[1]", "*A", "A|*", "A(*)", "A-B" })
+            try {
+                WordPattern.compileRegex(regex);
+                fail("Expected " + regex + " to be rejected");
+            } catch (BadRequestException e) {
+                // expected
+            }
+        for (String wildcard : new String[] { "A-B", "[AB]", "A B" })
+            try {
+                WordPattern.compileWildcard(wildcard);
+                fail("Expected " + wildcard + " to be rejected");
+            } catch (BadRequestException e) {
+                // expected
+            }
+    }
+
+    // the words that the regex matches, by java.util.regex
+    private List<String> matches(String regex) {
+        Pattern pattern = Pattern.compile(regex.toUpperCase());
+        List<String> matches = new ArrayList<>();
+        for (String word : words)
+            if (pattern.matcher(word).matches())
+                matches.add(word);
+        return matches;
+    }
+}
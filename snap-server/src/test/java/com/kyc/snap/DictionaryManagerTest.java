@@ -0,0 +1,88 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DictionaryManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        DictionaryManager dictionaryManager = TestDictionaries.of(folder.getRoot(),
+            "dog", "CAT", "bird", "cat", "EMU", "kiwi", "ox");
+
+        assertEquals(new HashSet<>(Arrays.asList(2, 3, 4)), dictionaryManager.getLengths());
+        assertWords(dictionaryManager.getWordsWithLength(2), "OX");
+        assertWords(dictionaryManager.getWordsWithLength(3), "CAT", "DOG", "EMU");
+        assertWords(dictionaryManager.getWordsWithLength(4), "BIRD", "KIWI");
+        assertWords(dictionaryManager.getWordsWithLength(5));
+    }
+
+    @Test
+    public void testSkipsWordsWithOtherCharacters() throws IOException {
+        DictionaryManager dictionaryManager = TestDictionaries.of(folder.getRoot(),
+            "", "it's", "caf\u00e9", "r2d2", "ice cream", "high-five", "OK");
+
+        assertEquals(new HashSet<>(Arrays.asList(2)), dictionaryManager.getLengths());
+        assertWords(dictionaryManager.getWordsWithLength(2), "OK");
+    }
+
+    @Test
+    public void testIndexOf() throws IOException {
+        WordList words = TestDictionaries.of(folder.getRoot(), "ant", "bee", "cat", "dog", "emu", "fox", "gnu")
+            .getWordsWithLength(3);
+
+        for (int i = 0; i < words.size(); i++)
+            assertEquals(i, words.indexOf(words.get(i)));
+        assertEquals(-1, words.indexOf("AAA"));
+        assertEquals(-1, words.indexOf("COW"));
+        assertEquals(-1, words.indexOf("ZZZ"));
+        assertEquals(-1, words.indexOf("ANTS"));
+        assertEquals(-1, words.indexOf("cat"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsBadMagic() throws IOException {
+        ByteBuffer compiled = compiled();
+        compiled.putInt(0, 0x12345678);
+        map(compiled);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsOtherVersion() throws IOException {
+        ByteBuffer compiled = compiled();
+        compiled.putInt(4, compiled.getInt(4) + 1);
+        map(compiled);
+    }
+
+    private ByteBuffer compiled() throws IOException {
+        File wordList = folder.newFile("words.txt");
+        Files.write(wordList.toPath(), Arrays.asList("CAT"));
+        return DictionaryManager.compile(wordList.getPath());
+    }
+
+    private DictionaryManager map(ByteBuffer compiled) throws IOException {
+        File dictionary = folder.newFile("dictionary.bin");
+        Files.write(dictionary.toPath(), compiled.array());
+        return DictionaryManager.map(dictionary.getPath());
+    }
+
+    private static void assertWords(WordList words, String... expected) {
+        String[] actual = new String[words.size()];
+        for (int i = 0; i < actual.length; i++)
+            actual[i] = words.get(i);
+        assertEquals(Arrays.asList(expected), Arrays.asList(actual));
+    }
+}
@@ -0,0 +1,248 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Permission;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.CellData;
+import com.google.api.services.sheets.v4.model.GridCoordinate;
+import com.google.api.services.sheets.v4.model.GridRange;
+import com.google.api.services.sheets.v4.model.Request;
+import com.google.api.services.sheets.v4.model.UpdateBordersRequest;
+import com.google.api.services.sheets.v4.model.UpdateCellsRequest;
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BoundingPoly;
+import com.google.cloud.vision.v1.EntityAnnotation;
+import com.google.cloud.vision.v1.Vertex;
+import com.google.common.collect.Lists;
+import com.kyc.snap.ParseGridRequest.TextDetectionMode;
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+
+public class GoogleAPIManagerTest {
+
+    private static final int MOSAIC_IMAGE_LIMIT = 100;
+
+    private GoogleAPIManager googleAPIManager;
+
+    @After
+    public void stop() throws Exception {
+        if (googleAPIManager != null)
+            googleAPIManager.stop();
+    }
+
+    @Test
+    public void testSingleImages() {
+        // enough images for several concurrent partitions; each image's width identifies it
+        List<BufferedImage> images = IntStream.range(0, 40)
+            .mapToObj(i -> newImage(i + 1, 4))
+            .collect(Collectors.toList());
+        googleAPIManager = new GoogleAPIManager(null, null, requests -> requests.stream()
+            .map(request -> {
+                int width = ImageUtils.from(request.getImage().getContent().toByteArray()).getWidth();
+                return AnnotateImageResponse.newBuilder()
+                    .addTextAnnotations(EntityAnnotation.newBuilder().setDescription("image" + (width - 1)))
+                    .build();
+            })
+            .collect(Collectors.toList()), 4, null, null);
+
+        List<String> expected = IntStream.range(0, images.size())
+            .mapToObj(i -> "image" + i)
+            .collect(Collectors.toList());
+        Map<Integer, String> textsByCallback = new ConcurrentHashMap<>();
+        List<String> texts = googleAPIManager.batchFindText(images, TextDetectionMode.PER_SQUARE, (start, batchTexts) -> {
+            for (int i = 0; i < batchTexts.size(); i++)
+                textsByCallback.put(start + i, batchTexts.get(i));
+        });
+        assertEquals(expected, texts);
+        assertEquals(expected, toList(textsByCallback));
+    }
+
+    @Test
+    public void testMosaics() {
+        // more mosaics than fit in one request, so that partitions after the first are also checked; each mosaic has
+        // different sized images so that the stub can tell them apart
+        List<BufferedImage> images = IntStream.range(0, 17 * MOSAIC_IMAGE_LIMIT + 50)
+            .mapToObj(i -> newImage(4 + i / MOSAIC_IMAGE_LIMIT, 4))
+            .collect(Collectors.toList());
+        Map<String, Integer> mosaicIndices = new HashMap<>();
+        List<TextMosaic> mosaics = new ArrayList<>();
+        for (List<BufferedImage> partition : Lists.partition(images, MOSAIC_IMAGE_LIMIT)) {
+            TextMosaic mosaic = TextMosaic.of(partition);
+            mosaicIndices.put(fingerprint(mosaic.getImage()), mosaics.size());
+            mosaics.add(mosaic);
+        }
+        // finds which mosaic was sent, and reports a word at the center of each image in it, the way Vision would
+        googleAPIManager = new GoogleAPIManager(null, null, requests -> requests.stream()
+            .map(request -> {
+                BufferedImage image = ImageUtils.from(request.getImage().getContent().toByteArray());
+                int mosaicIndex = mosaicIndices.get(fingerprint(image));
+                TextMosaic mosaic = mosaics.get(mosaicIndex);
+                AnnotateImageResponse.Builder response = AnnotateImageResponse.newBuilder()
+                    .addTextAnnotations(EntityAnnotation.newBuilder().setDescription("all text"));
+                for (int i = 0; i < mosaic.getNumImages(); i++) {
+                    int x = mosaic.getPadding() + (i % mosaic.getNumColumns()) * mosaic.getSlotWidth() + 2;
+                    int y = mosaic.getPadding() + (i / mosaic.getNumColumns()) * mosaic.getSlotHeight() + 2;
+                    response.addTextAnnotations(EntityAnnotation.newBuilder()
+                        .setDescription("image" + (mosaicIndex * MOSAIC_IMAGE_LIMIT + i))
+                        .setBoundingPoly(BoundingPoly.newBuilder().addAllVertices(Arrays.asList(
+                            vertex(x - 1, y - 1), vertex(x + 1, y - 1), vertex(x + 1, y + 1), vertex(x - 1, y + 1)))));
+                }
+                return response.build();
+            })
+            .collect(Collectors.toList()), 4, null, null);
+
+        List<String> expected = IntStream.range(0, images.size())
+            .mapToObj(i -> "image" + i)
+            .collect(Collectors.toList());
+        Map<Integer, String> textsByCallback = new ConcurrentHashMap<>();
+        List<String> texts = googleAPIManager.batchFindText(images, TextDetectionMode.MOSAIC, (start, batchTexts) -> {
+            for (int i = 0; i < batchTexts.size(); i++)
+                textsByCallback.put(start + i, batchTexts.get(i));
+        });
+        assertEquals(expected, texts);
+        assertEquals(expected, toList(textsByCallback));
+    }
+
+    @Test
+    public void testExportRequests() {
+        // the first two rows have the same borders, and the last row has two runs of different borders
+        List<ParsedGridSquare> squares = new ArrayList<>();
+        for (int row = 0; row < 3; row++)
+            for (int col = 0; col < 3; col++) {
+                ParsedGridSquare square = new ParsedGridSquare(row, col);
+                square.setRgb(row == 1 && col == 1 ? 0x000000 : 0xffffff);
+                square.setText(row + "" + col);
+                square.setRightBorderRgb(row == 2 && col == 2 ? 0xffffff : 0x000000);
+                square.setBottomBorderRgb(row == 2 ? 0x000000 : 0xff0000);
+                squares.add(square);
+            }
+        List<Request> requests = GoogleAPIManager.toExportRequests(new ParsedGrid(3, 3, squares), 7);
+
+        assertEquals(5, requests.size());
+        assertEquals(7, (int) requests.get(0).getUpdateDimensionProperties().getRange().getSheetId());
+
+        UpdateCellsRequest updateCells = requests.get(1).getUpdateCells();
+        assertEquals(new GridCoordinate().setSheetId(7).setRowIndex(0).setColumnIndex(0), updateCells.getStart());
+        assertEquals(3, updateCells.getRows().size());
+        for (int row = 0; row < 3; row++) {
+            List<CellData> cells = updateCells.getRows().get(row).getValues();
+            assertEquals(3, cells.size());
+            for (int col = 0; col < 3; col++) {
+                assertEquals(row + "" + col, cells.get(col).getUserEnteredValue().getStringValue());
+                assertEquals(row == 1 && col == 1 ? 0f : 1f,
+                    cells.get(col).getUserEnteredFormat().getBackgroundColor().getRed(), 0);
+            }
+        }
+
+        assertBorders(requests.get(2), 0, 2, 0, 3, 0x000000, 0xff0000);
+        assertBorders(requests.get(3), 2, 3, 0, 2, 0x000000, 0x000000);
+        assertBorders(requests.get(4), 2, 3, 2, 3, 0xffffff, 0x000000);
+    }
+
+    @Test
+    public void testExportSharesOnlyWhenConfigured() throws Exception {
+        ParsedGrid parsedGrid = new ParsedGrid(1, 1, Arrays.asList(new ParsedGridSquare(0, 0)));
+        List<MockLowLevelHttpRequest> httpRequests = new ArrayList<>();
+        HttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                MockLowLevelHttpRequest request = new MockLowLevelHttpRequest(url);
+                request.setResponse(new MockLowLevelHttpResponse()
+                    .setContentType(Json.MEDIA_TYPE)
+                    .setContent("{\"spreadsheetId\": \"sheet\", \"spreadsheetUrl\": \"https://sheets/sheet\"}"));
+                httpRequests.add(request);
+                return request;
+            }
+        };
+        Sheets sheets = new Sheets.Builder(transport, JacksonFactory.getDefaultInstance(), null)
+            .setApplicationName("Snap")
+            .build();
+        Drive drive = new Drive.Builder(transport, JacksonFactory.getDefaultInstance(), null)
+            .setApplicationName("Snap")
+            .build();
+
+        googleAPIManager = new GoogleAPIManager(sheets, drive, requests -> new ArrayList<>(), 4, null, "reader");
+        assertEquals("https://sheets/sheet", googleAPIManager.exportToGoogleSheets(parsedGrid, "Puzzle"));
+        assertEquals(2, httpRequests.size());
+        assertTrue(httpRequests.get(0).getContentAsString().contains("\"title\":\"Puzzle\""));
+        assertTrue(httpRequests.get(1).getUrl().endsWith("/spreadsheets/sheet:batchUpdate"));
+        googleAPIManager.stop();
+
+        httpRequests.clear();
+        googleAPIManager = new GoogleAPIManager(sheets, drive, requests -> new ArrayList<>(), 4, "team@example.com", "reader");
+        googleAPIManager.exportToGoogleSheets(parsedGrid, "Puzzle");
+        assertEquals(3, httpRequests.size());
+        assertTrue(httpRequests.get(1).getUrl().contains("/files/sheet/permissions"));
+        Permission permission = JacksonFactory.getDefaultInstance()
+            .fromString(httpRequests.get(1).getContentAsString(), Permission.class);
+        assertEquals(new Permission().setType("user").setEmailAddress("team@example.com").setRole("reader"), permission);
+    }
+
+    private static void assertBorders(Request request, int startRow, int endRow, int startCol, int endCol,
+            int rightBorderRgb, int bottomBorderRgb) {
+        UpdateBordersRequest updateBorders = request.getUpdateBorders();
+        assertEquals(new GridRange().setSheetId(7).setStartRowIndex(startRow).setEndRowIndex(endRow)
+            .setStartColumnIndex(startCol).setEndColumnIndex(endCol), updateBorders.getRange());
+        assertEquals(rightBorderRgb, toRgb(updateBorders.getRight().getColor()));
+        assertEquals(rightBorderRgb, toRgb(updateBorders.getInnerVertical().getColor()));
+        assertEquals(bottomBorderRgb, toRgb(updateBorders.getBottom().getColor()));
+        assertEquals(bottomBorderRgb, toRgb(updateBorders.getInnerHorizontal().getColor()));
+    }
+
+    private static int toRgb(com.google.api.services.sheets.v4.model.Color color) {
+        return new Color(color.getRed(), color.getGreen(), color.getBlue()).getRGB() & 0xffffff;
+    }
+
+    private static BufferedImage newImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.black);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return image;
+    }
+
+    private static String fingerprint(BufferedImage image) {
+        int numDark = 0;
+        for (int x = 0; x < image.getWidth(); x++)
+            for (int y = 0; y < image.getHeight(); y++)
+                if (!ImageUtils.isLight(image.getRGB(x, y)))
+                    numDark++;
+        return image.getWidth() + "x" + image.getHeight() + ":" + numDark;
+    }
+
+    private static Vertex vertex(int x, int y) {
+        return Vertex.newBuilder().setX(x).setY(y).build();
+    }
+
+    private static List<String> toList(Map<Integer, String> textsByIndex) {
+        return IntStream.range(0, textsByIndex.size())
+            .mapToObj(textsByIndex::get)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,194 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.kyc.snap.CrosswordCluePosition.CrosswordClueOrientation;
+import com.kyc.snap.CrosswordCluesList.CrosswordClue;
+import com.kyc.snap.CrosswordGrid.CrosswordBlank;
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+
+public class GridExporterTest {
+
+    private static final String SPREADSHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testPuz() throws IOException {
+        byte[] puz = export(new PuzExporter(), crosswordRequest());
+        ByteBuffer buffer = ByteBuffer.wrap(puz).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals("ACROSS&DOWN\0", new String(puz, 0x02, 12, StandardCharsets.ISO_8859_1));
+        assertEquals("1.3\0", new String(puz, 0x18, 4, StandardCharsets.ISO_8859_1));
+        assertEquals(3, puz[0x2C]);
+        assertEquals(2, puz[0x2D]);
+        assertEquals(4, buffer.getShort(0x2E));
+        assertEquals(1, buffer.getShort(0x30));
+        assertEquals(0, buffer.getShort(0x32));
+
+        byte[] solution = Arrays.copyOfRange(puz, 0x34, 0x3A);
+        byte[] state = Arrays.copyOfRange(puz, 0x3A, 0x40);
+        assertEquals("CATOX.", new String(solution, StandardCharsets.ISO_8859_1));
+        assertEquals("-----.", new String(state, StandardCharsets.ISO_8859_1));
+        // clues in order of number, across before down
+        String[] strings = new String(puz, 0x40, puz.length - 0x40, StandardCharsets.ISO_8859_1).split("\0", -1);
+        assertEquals(Arrays.asList("Puzzle", "", "", "Feline", "Company, for short", "Chopper", "Bovine", "", ""),
+            Arrays.asList(strings));
+
+        int cibChecksum = checksum(Arrays.copyOfRange(puz, 0x2C, 0x34), 0);
+        int solutionChecksum = checksum(solution, 0);
+        int stateChecksum = checksum(state, 0);
+        // the title with its terminator, then the clues without theirs; the empty author, copyright and notes are left
+        // out
+        int stringsChecksum = 0;
+        stringsChecksum = checksum("Puzzle\0".getBytes(StandardCharsets.ISO_8859_1), stringsChecksum);
+        for (String clue : Arrays.asList("Feline", "Company, for short", "Chopper", "Bovine"))
+            stringsChecksum = checksum(clue.getBytes(StandardCharsets.ISO_8859_1), stringsChecksum);
+        int checksum = cibChecksum;
+        checksum = checksum(solution, checksum);
+        checksum = checksum(state, checksum);
+        checksum = checksum("Puzzle\0".getBytes(StandardCharsets.ISO_8859_1), checksum);
+        for (String clue : Arrays.asList("Feline", "Company, for short", "Chopper", "Bovine"))
+            checksum = checksum(clue.getBytes(StandardCharsets.ISO_8859_1), checksum);
+
+        assertEquals(checksum, buffer.getShort(0x00) & 0xffff);
+        assertEquals(cibChecksum, buffer.getShort(0x0E) & 0xffff);
+        int[] maskedChecksums = { cibChecksum, solutionChecksum, stateChecksum, stringsChecksum };
+        String mask = "ICHEATED";
+        for (int i = 0; i < 4; i++) {
+            assertEquals((byte) (mask.charAt(i) ^ maskedChecksums[i]), puz[0x10 + i]);
+            assertEquals((byte) (mask.charAt(i + 4) ^ (maskedChecksums[i] >> 8)), puz[0x14 + i]);
+        }
+    }
+
+    @Test
+    public void testIpuz() throws IOException {
+        JsonNode ipuz = objectMapper.readTree(export(new IpuzExporter(objectMapper.getFactory()), crosswordRequest()));
+
+        assertEquals("Puzzle", ipuz.get("title").asText());
+        assertEquals(3, ipuz.get("dimensions").get("width").asInt());
+        assertEquals(2, ipuz.get("dimensions").get("height").asInt());
+        assertEquals(objectMapper.readTree("[[1, 2, 0], [3, 0, \"#\"]]"), ipuz.get("puzzle"));
+        assertEquals(objectMapper.readTree("[[\"C\", \"A\", \"T\"], [\"O\", \"X\", \"#\"]]"), ipuz.get("solution"));
+        assertEquals(objectMapper.readTree("[[1, \"Feline\"], [3, \"Bovine\"]]"), ipuz.get("clues").get("Across"));
+        assertEquals(objectMapper.readTree("[[1, \"Company, for short\"], [2, \"Chopper\"]]"),
+            ipuz.get("clues").get("Down"));
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        ParsedGrid parsedGrid = new ParsedGrid(2, 3, new ArrayList<>(Arrays.asList(
+            square(0, 0, "plain"), square(0, 1, "a,b"), square(0, 2, "say \"hi\""),
+            square(1, 0, "two\nlines"), square(1, 2, ""))));
+
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\"\r\n\"two\nlines\",,\r\n",
+            new String(export(new CsvExporter(), new ExportRequest(parsedGrid)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testXlsx() throws Exception {
+        ExportRequest request = crosswordRequest();
+        request.setTitle("A: title [with] / bad characters");
+        Map<String, Document> parts = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(export(new XlsxExporter(), request)))) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; )
+                parts.put(entry.getName(),
+                    factory.newDocumentBuilder().parse(new ByteArrayInputStream(ByteStreams.toByteArray(zip))));
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList("[Content_Types].xml", "_rels/.rels", "xl/_rels/workbook.xml.rels",
+            "xl/workbook.xml", "xl/styles.xml", "xl/worksheets/sheet1.xml")), parts.keySet());
+        // sheet names are at most 31 characters, without some punctuation
+        Element sheet = (Element) parts.get("xl/workbook.xml").getElementsByTagNameNS(SPREADSHEET_NS, "sheet").item(0);
+        assertEquals("A  title  with    bad character", sheet.getAttribute("name"));
+
+        // one style for each distinct combination of colors, after the default style
+        Element cellXfs =
+            (Element) parts.get("xl/styles.xml").getElementsByTagNameNS(SPREADSHEET_NS, "cellXfs").item(0);
+        assertEquals("3", cellXfs.getAttribute("count"));
+        assertEquals(3, cellXfs.getElementsByTagNameNS(SPREADSHEET_NS, "xf").getLength());
+
+        NodeList cells = parts.get("xl/worksheets/sheet1.xml").getElementsByTagNameNS(SPREADSHEET_NS, "c");
+        List<String> cellTexts = new ArrayList<>();
+        for (int i = 0; i < cells.getLength(); i++) {
+            Element cell = (Element) cells.item(i);
+            cellTexts.add(cell.getAttribute("r") + "=" + cell.getTextContent());
+        }
+        assertEquals(Arrays.asList("A1=1C", "B1=2A", "C1=T", "A2=3O", "B2=X", "C2="), cellTexts);
+    }
+
+    // a 2x3 grid with clues 1 and 3 across and 1 and 2 down, and a block at the bottom right
+    private static ExportRequest crosswordRequest() {
+        List<ParsedGridSquare> squares = new ArrayList<>(Arrays.asList(
+            square(0, 0, "1C"), square(0, 1, "2A"), square(0, 2, "T"),
+            square(1, 0, "3O"), square(1, 1, "X"), square(1, 2, "")));
+        squares.get(5).setRgb(0x000000);
+        ExportRequest request = new ExportRequest(new ParsedGrid(2, 3, squares));
+        CrosswordCluePosition across1 = new CrosswordCluePosition("1", CrosswordClueOrientation.ACROSS);
+        CrosswordCluePosition across3 = new CrosswordCluePosition("3", CrosswordClueOrientation.ACROSS);
+        CrosswordCluePosition down1 = new CrosswordCluePosition("1", CrosswordClueOrientation.DOWN);
+        CrosswordCluePosition down2 = new CrosswordCluePosition("2", CrosswordClueOrientation.DOWN);
+        // out of order, to check that the exporters sort them
+        request.setCrosswordGrid(new CrosswordGrid(Arrays.asList(
+            new CrosswordBlank(down2, 0, 1, 2),
+            new CrosswordBlank(across3, 1, 0, 2),
+            new CrosswordBlank(down1, 0, 0, 2),
+            new CrosswordBlank(across1, 0, 0, 3))));
+        request.setClues(new CrosswordCluesList(Arrays.asList(
+            new CrosswordClue(across1, "Feline"),
+            new CrosswordClue(across3, "Bovine"),
+            new CrosswordClue(down1, "Company, for short"),
+            new CrosswordClue(down2, "Chopper"))));
+        request.setTitle("Puzzle");
+        return request;
+    }
+
+    private static ParsedGridSquare square(int row, int col, String text) {
+        ParsedGridSquare square = new ParsedGridSquare(row, col);
+        square.setRgb(0xffffff);
+        square.setText(text);
+        return square;
+    }
+
+    private static byte[] export(GridExporter exporter, ExportRequest request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(request, out);
+        return out.toByteArray();
+    }
+
+    // the Across Lite checksum, a 16-bit rotate-and-add over the bytes
+    private static int checksum(byte[] bytes, int checksum) {
+        for (byte b : bytes) {
+            checksum = (checksum & 1) != 0 ? (checksum >> 1) + 0x8000 : checksum >> 1;
+            checksum = (checksum + (b & 0xff)) & 0xffff;
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,116 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.EntityAnnotation;
+import com.kyc.snap.Grid.GridCol;
+import com.kyc.snap.Grid.GridRow;
+import com.kyc.snap.ParseGridRequest.TextDetectionMode;
+
+public class ImageUtilsTest {
+
+    @Test
+    public void testRegularityScoreOfDegenerateGrids() {
+        GridRow row = new GridRow(0, 10);
+        GridCol col = new GridCol(0, 10);
+        assertEquals(0, ImageUtils.regularityScore(new Grid(Collections.emptyList(), Collections.emptyList())), 0);
+        assertEquals(0, ImageUtils.regularityScore(new Grid(Arrays.asList(row), Arrays.asList(col, col, col))), 0);
+        assertEquals(0, ImageUtils.regularityScore(new Grid(Arrays.asList(row, row, row), Arrays.asList(col))), 0);
+    }
+
+    @Test
+    public void testRegularityScore() {
+        GridRow row = new GridRow(0, 10);
+        GridCol col = new GridCol(0, 10);
+        assertEquals(1, ImageUtils.regularityScore(new Grid(Arrays.asList(row, row), Arrays.asList(col, col))), 1e-9);
+        double irregular = ImageUtils.regularityScore(
+            new Grid(Arrays.asList(row, new GridRow(10, 30)), Arrays.asList(col, col)));
+        assertTrue(irregular > 0 && irregular < 1);
+    }
+
+    @Test
+    public void testFindTextsMatchesSendingEverySquare() throws Exception {
+        List<BufferedImage> crops = new ArrayList<>();
+        crops.add(newCrop(Color.white, null, null));
+        crops.add(newCrop(Color.black, null, null));
+        // a faint mark that only just survives binarization, which must still be sent
+        BufferedImage faint = newCrop(Color.white, null, null);
+        faint.setRGB(10, 10, new Color(120, 120, 120).getRGB());
+        crops.add(faint);
+        // a mark too faint to survive binarization, which was always sent as a blank image
+        BufferedImage invisible = newCrop(Color.white, null, null);
+        invisible.setRGB(10, 10, new Color(200, 200, 200).getRGB());
+        crops.add(invisible);
+        for (String text : Arrays.asList("A", "B", "A", "12", "Q", "B", "12"))
+            crops.add(newCrop(Color.white, Color.black, text));
+        crops.add(newCrop(Color.black, Color.white, "Z"));
+        List<BufferedImage> binaryImages = crops.stream().map(ImageUtils::toBinaryImage).collect(Collectors.toList());
+
+        // reads each image as the sum of the positions of its black pixels, and finds nothing in a blank image like
+        // Vision does
+        AtomicInteger numRequests = new AtomicInteger();
+        TextAnnotator annotator = requests -> requests.stream()
+            .map(request -> {
+                numRequests.incrementAndGet();
+                String text = stubText(ImageUtils.from(request.getImage().getContent().toByteArray()));
+                AnnotateImageResponse.Builder response = AnnotateImageResponse.newBuilder();
+                if (!text.isEmpty())
+                    response.addTextAnnotations(EntityAnnotation.newBuilder().setDescription(text));
+                return response.build();
+            })
+            .collect(Collectors.toList());
+        GoogleAPIManager googleAPIManager = new GoogleAPIManager(null, null, annotator, 4, null, null);
+        try {
+            List<String> texts = ImageUtils.findTexts(binaryImages, TextDetectionMode.PER_SQUARE, googleAPIManager,
+                (indices, foundTexts) -> {});
+            List<String> expected = binaryImages.stream().map(ImageUtilsTest::stubText).collect(Collectors.toList());
+            assertEquals(expected, texts);
+            assertTrue(!texts.get(2).isEmpty());
+            // the blank, solid, invisible and duplicate crops aren't sent
+            assertEquals(6, numRequests.get());
+        } finally {
+            googleAPIManager.stop();
+        }
+    }
+
+    private static BufferedImage newCrop(Color background, Color foreground, String text) {
+        BufferedImage image = new BufferedImage(24, 24, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(background);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        if (text != null) {
+            g.setColor(foreground);
+            g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 16));
+            g.drawString(text, 4, 18);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static String stubText(BufferedImage image) {
+        long black = 0;
+        long white = 0;
+        for (int x = 0; x < image.getWidth(); x++)
+            for (int y = 0; y < image.getHeight(); y++)
+                if (ImageUtils.isLight(image.getRGB(x, y)))
+                    white += 1 + x * 31 + y * 1009;
+                else
+                    black += 1 + x * 31 + y * 1009;
+        return black == 0 || white == 0 ? "" : black + "/" + white;
+    }
+}
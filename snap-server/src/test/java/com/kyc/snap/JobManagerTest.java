@@ -0,0 +1,76 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.kyc.snap.Job.JobState;
+import com.kyc.snap.Job.JobType;
+import com.kyc.snap.SnapConfiguration.JobPoolConfiguration;
+
+import io.dropwizard.util.Duration;
+
+public class JobManagerTest {
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private JobManager jobManager;
+
+    @Before
+    public void setUp() {
+        Map<JobType, JobPoolConfiguration> pools = new EnumMap<>(JobType.class);
+        pools.put(JobType.GRIDIFY, new JobPoolConfiguration(1, 0));
+        pools.put(JobType.PARSE_GRID, new JobPoolConfiguration(4, 4096));
+        pools.put(JobType.SOLVE_CROSSWORD, new JobPoolConfiguration(1, 0));
+        jobManager = new JobManager(pools, Duration.milliseconds(100));
+    }
+
+    @After
+    public void tearDown() {
+        unblock.countDown();
+        jobManager.stop();
+    }
+
+    @Test
+    public void testUnfinishedJobsAreNotEvicted() {
+        String blockedId = jobManager.submit(JobType.GRIDIFY, this::awaitUnblock).getId();
+        // finish more jobs than are kept, in batches small enough to wait on
+        for (int batch = 0; batch < 4; batch++) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 500; i++)
+                ids.add(jobManager.submit(JobType.PARSE_GRID, () -> "done").getId());
+            for (String id : ids)
+                assertEquals(JobState.SUCCEEDED, jobManager.get(id, 1000).getState());
+        }
+
+        assertEquals(JobState.RUNNING, jobManager.get(blockedId, 0).getState());
+        unblock.countDown();
+        assertEquals(JobState.SUCCEEDED, jobManager.get(blockedId, 1000).getState());
+    }
+
+    @Test
+    public void testWaitIsClamped() {
+        String blockedId = jobManager.submit(JobType.GRIDIFY, this::awaitUnblock).getId();
+        long startTime = System.currentTimeMillis();
+        Job job = jobManager.get(blockedId, 60_000);
+        assertTrue(System.currentTimeMillis() - startTime < 10_000);
+        assertEquals(JobState.RUNNING, job.getState());
+    }
+
+    private Object awaitUnblock() {
+        try {
+            unblock.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "unblocked";
+    }
+}
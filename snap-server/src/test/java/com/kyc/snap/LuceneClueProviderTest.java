@@ -0,0 +1,57 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LuceneClueProviderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSolveClue() throws Exception {
+        File corpus = writeCorpus("Feline pet\tcat", "Canine pet\tdog", "Feline pet\tcats");
+        LuceneClueProvider provider = newProvider(corpus);
+        try {
+            // CATS has the wrong length, and DOG only matches part of the clue
+            assertEquals(Arrays.asList(new CrosswordClueResult("CAT", 5), new CrosswordClueResult("DOG", 1)),
+                provider.solveClue("feline pet", 3));
+        } finally {
+            provider.stop();
+        }
+    }
+
+    @Test
+    public void testRebuildsWhenCorpusChanges() throws Exception {
+        File corpus = writeCorpus("Feline pet\tcat");
+        LuceneClueProvider provider = newProvider(corpus);
+        provider.stop();
+
+        Files.write(corpus.toPath(), Arrays.asList("Feline pet\tkit"), StandardCharsets.UTF_8);
+        provider = newProvider(corpus);
+        try {
+            assertEquals(Arrays.asList(new CrosswordClueResult("KIT", 5)), provider.solveClue("feline pet", 3));
+        } finally {
+            provider.stop();
+        }
+    }
+
+    private File writeCorpus(String... lines) throws IOException {
+        File corpus = new File(folder.getRoot(), "clues.tsv");
+        Files.write(corpus.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return corpus;
+    }
+
+    private LuceneClueProvider newProvider(File corpus) {
+        return new LuceneClueProvider(corpus.getPath(), new File(folder.getRoot(), "index").getPath(), "../solr/conf");
+    }
+}
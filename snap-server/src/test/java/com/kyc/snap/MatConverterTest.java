@@ -0,0 +1,80 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+public class MatConverterTest {
+
+    private static final int[] IMAGE_TYPES = {
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_INT_ARGB_PRE,
+        BufferedImage.TYPE_INT_BGR,
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_4BYTE_ABGR_PRE,
+        BufferedImage.TYPE_USHORT_565_RGB,
+        BufferedImage.TYPE_USHORT_555_RGB,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_GRAY,
+        BufferedImage.TYPE_BYTE_BINARY,
+        BufferedImage.TYPE_BYTE_INDEXED,
+    };
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        ImageUtils.load();
+    }
+
+    @Test
+    public void testMatchesPixelByPixelConversion() {
+        for (int type : IMAGE_TYPES) {
+            BufferedImage image = randomImage(type, 37, 23);
+            assertArrayEquals("type " + type, toBytes(toMatPixelByPixel(image)),
+                toBytes(MatConverter.toBgrMat(image)));
+        }
+    }
+
+    @Test
+    public void testMatchesPixelByPixelConversionOfSubimages() {
+        for (int type : IMAGE_TYPES) {
+            BufferedImage image = randomImage(type, 37, 23).getSubimage(5, 3, 20, 11);
+            assertArrayEquals("type " + type, toBytes(toMatPixelByPixel(image)),
+                toBytes(MatConverter.toBgrMat(image)));
+        }
+    }
+
+    private static BufferedImage randomImage(int type, int width, int height) {
+        Random random = new Random(type);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                image.setRGB(x, y, random.nextInt());
+        return image;
+    }
+
+    // the conversion that MatConverter replaced
+    private static Mat toMatPixelByPixel(BufferedImage image) {
+        BufferedImage newImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        for (int x = 0; x < image.getWidth(); x++)
+            for (int y = 0; y < image.getHeight(); y++)
+                newImage.setRGB(x, y, image.getRGB(x, y));
+        Mat mat = new Mat(image.getHeight(), image.getWidth(), CvType.CV_8UC3);
+        mat.put(0, 0, ((DataBufferByte) newImage.getRaster().getDataBuffer()).getData());
+        return mat;
+    }
+
+    private static byte[] toBytes(Mat mat) {
+        byte[] bytes = new byte[(int) mat.total() * mat.channels()];
+        mat.get(0, 0, bytes);
+        return bytes;
+    }
+}
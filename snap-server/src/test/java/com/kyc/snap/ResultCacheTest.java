@@ -0,0 +1,48 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+
+import io.dropwizard.util.Duration;
+
+public class ResultCacheTest {
+
+    private static final byte[] DATA = { 1, 2, 3 };
+
+    @Test
+    public void testLoadsOnce() {
+        ResultCache<ParsedGrid> cache = new ResultCache<>(10, Duration.hours(1), ParsedGrid::copyOf);
+        AtomicInteger numLoads = new AtomicInteger();
+        for (int i = 0; i < 3; i++)
+            cache.get(DATA, Arrays.asList(1), () -> {
+                numLoads.incrementAndGet();
+                return newParsedGrid("A");
+            });
+        assertEquals(1, numLoads.get());
+    }
+
+    @Test
+    public void testCallersGetCopies() {
+        ResultCache<ParsedGrid> cache = new ResultCache<>(10, Duration.hours(1), ParsedGrid::copyOf);
+        ParsedGrid first = cache.get(DATA, Arrays.asList(1), () -> newParsedGrid("A"));
+        first.getSquares().get(0).setText("B");
+        first.getSquares().clear();
+
+        ParsedGrid second = cache.get(DATA, Arrays.asList(1), () -> newParsedGrid("C"));
+        assertEquals(1, second.getSquares().size());
+        assertEquals("A", second.getSquares().get(0).getText());
+    }
+
+    private static ParsedGrid newParsedGrid(String text) {
+        ParsedGridSquare square = new ParsedGridSquare(0, 0);
+        square.setText(text);
+        return new ParsedGrid(1, 1, new ArrayList<>(Arrays.asList(square)));
+    }
+}
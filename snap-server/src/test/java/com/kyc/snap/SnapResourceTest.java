@@ -0,0 +1,152 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kyc.snap.AnagramRequest.AnagramQuery;
+import com.kyc.snap.AnagramRequest.AnagramQueryType;
+import com.kyc.snap.Grid.GridCol;
+import com.kyc.snap.Grid.GridRow;
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+
+import io.dropwizard.util.Duration;
+
+public class SnapResourceTest {
+
+    private static final byte[] DATA = "not an image".getBytes();
+    private static final Grid GRID = new Grid(
+        Arrays.asList(new GridRow(0, 10)),
+        Arrays.asList(new GridCol(0, 10), new GridCol(10, 10)));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ResultCache<ParsedGrid> parseGridCache =
+        new ResultCache<>(10, Duration.hours(1), ParsedGrid::copyOf);
+    private final SnapResource resource = new SnapResource("snap", 256, 2, 50, null, null, objectMapper,
+        null, null, parseGridCache, null, null, null, Collections.emptyList());
+
+    @Test
+    public void testParseGridStreamReplaysCachedStages() throws IOException {
+        ParseGridRequest request = new ParseGridRequest(DATA, GRID);
+        cacheParsedGrid(request);
+
+        List<JsonNode> records = stream(request);
+        assertEquals(3, records.size());
+        assertEquals("COLORS", records.get(0).get("stage").asText());
+        assertEquals(2, records.get(0).get("parsedGrid").get("squares").size());
+        assertEquals("", records.get(0).get("parsedGrid").get("squares").get(0).get("text").asText());
+        assertEquals("TEXT", records.get(1).get("stage").asText());
+        assertEquals(1, records.get(1).get("parsedGrid").get("squares").size());
+        assertEquals("A", records.get(1).get("parsedGrid").get("squares").get(0).get("text").asText());
+        assertEquals("DONE", records.get(2).get("stage").asText());
+        assertEquals("A", records.get(2).get("parsedGrid").get("squares").get(0).get("text").asText());
+    }
+
+    @Test
+    public void testParseGridStreamEndsWithError() throws IOException {
+        List<JsonNode> records = stream(new ParseGridRequest(DATA, GRID));
+        assertEquals(1, records.size());
+        assertEquals("ERROR", records.get(0).get("stage").asText());
+    }
+
+    @Test
+    public void testParseGridStreamSurvivesDisconnect() throws IOException {
+        AtomicInteger numWrites = new AtomicInteger();
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                numWrites.incrementAndGet();
+                throw new IOException("Broken pipe");
+            }
+        };
+        ParseGridRequest request = new ParseGridRequest(DATA, GRID);
+        cacheParsedGrid(request);
+
+        resource.parseGridStream(request).write(disconnected);
+        assertEquals(1, numWrites.get());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testRejectsOversizedAnagramBatch() {
+        resource.findAnagrams(new AnagramRequest(Arrays.asList(
+            new AnagramQuery("CAT"), new AnagramQuery("DOG"), new AnagramQuery("EMU"))));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testRejectsNegativeSubanagramLimit() {
+        AnagramQuery query = new AnagramQuery("CAT");
+        query.setType(AnagramQueryType.SUBANAGRAM);
+        query.setLimit(-1);
+        resource.findAnagrams(new AnagramRequest(Arrays.asList(query)));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testRejectsZeroSubanagramMinLength() {
+        AnagramQuery query = new AnagramQuery("CAT");
+        query.setType(AnagramQueryType.SUBANAGRAM);
+        query.setMinLength(0);
+        resource.findAnagrams(new AnagramRequest(Arrays.asList(query)));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testRejectsOversizedWordSearchLimit() {
+        WordSearchRequest request = new WordSearchRequest("C?T");
+        request.setLimit(51);
+        resource.findWords(request);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testRejectsNegativeWordSearchOffset() {
+        WordSearchRequest request = new WordSearchRequest("C?T");
+        request.setOffset(-1);
+        resource.findWords(request);
+    }
+
+    @Test
+    public void testExportWithNullTitle() throws IOException {
+        SnapResource csvResource = new SnapResource("snap", 256, 2, 50, null, null, objectMapper, null, null,
+            parseGridCache, null, null, null, Arrays.asList(new CsvExporter()));
+        ExportRequest request = new ExportRequest(new ParsedGrid(1, 1, Arrays.asList(new ParsedGridSquare(0, 0))));
+        request.setTitle(null);
+
+        Response response = csvResource.export("csv", request);
+        assertEquals("attachment; filename=\"Snap.csv\"", response.getHeaderString("Content-Disposition"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(out);
+        assertEquals("\r\n", out.toString("UTF-8"));
+    }
+
+    private void cacheParsedGrid(ParseGridRequest request) {
+        ParsedGridSquare first = new ParsedGridSquare(0, 0);
+        first.setRgb(0xffffff);
+        first.setText("A");
+        ParsedGridSquare second = new ParsedGridSquare(0, 1);
+        second.setRgb(0x000000);
+        parseGridCache.get(DATA, SnapResource.parseGridParams(request),
+            () -> new ParsedGrid(1, 2, new ArrayList<>(Arrays.asList(first, second))));
+    }
+
+    private List<JsonNode> stream(ParseGridRequest request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        resource.parseGridStream(request).write(out);
+        List<JsonNode> records = new ArrayList<>();
+        for (String line : out.toString("UTF-8").split("\n"))
+            records.add(objectMapper.readTree(line));
+        return records;
+    }
+}
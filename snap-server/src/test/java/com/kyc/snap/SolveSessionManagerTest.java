@@ -0,0 +1,87 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.kyc.snap.ParsedGrid.ParsedGridSquare;
+import com.kyc.snap.SolveSessionUpdate.PinnedLetter;
+
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+
+public class SolveSessionManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CrosswordManager crosswordManager;
+
+    @Before
+    public void setUp() throws IOException {
+        DictionaryManager dictionaryManager = TestDictionaries.of(folder.getRoot(), "CAT", "COT", "TOT", "TAT");
+        crosswordManager = new CrosswordManager(dictionaryManager, new DictionaryAutomaton(dictionaryManager),
+            (clue, numLetters) -> new ArrayList<>(), MoreExecutors.newDirectExecutorService(), new ForkJoinPool(1), 10,
+            Duration.seconds(1));
+    }
+
+    @Test
+    public void testPinLetter() {
+        SolveSessionManager manager = new SolveSessionManager(crosswordManager, Size.megabytes(1));
+        SolveSession session = manager.create(newRequest());
+        SolveSession updated = manager.update(session.getId(), pin(0, 1, "o"));
+        assertEquals("O", updated.getParsedGrid().getSquares().get(1).getText());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testPinOutsideGrid() {
+        SolveSessionManager manager = new SolveSessionManager(crosswordManager, Size.megabytes(1));
+        manager.update(manager.create(newRequest()).getId(), pin(3, 0, "A"));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testPinBlackSquare() {
+        SolveSessionManager manager = new SolveSessionManager(crosswordManager, Size.megabytes(1));
+        manager.update(manager.create(newRequest()).getId(), pin(1, 1, "A"));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void testEvictsSessionsOverMaxSize() {
+        SolveSessionManager manager = new SolveSessionManager(crosswordManager, Size.kilobytes(1));
+        manager.update(manager.create(newRequest()).getId(), pin(0, 1, "O"));
+    }
+
+    // a 3x3 grid with a black square in the middle, so clues 1 and 3 across and 1 and 2 down
+    private static SolveCrosswordRequest newRequest() {
+        List<ParsedGridSquare> squares = new ArrayList<>();
+        for (int row = 0; row < 3; row++)
+            for (int col = 0; col < 3; col++) {
+                ParsedGridSquare square = new ParsedGridSquare(row, col);
+                square.setRgb(row == 1 && col == 1 ? 0x000000 : 0xffffff);
+                squares.add(square);
+            }
+        squares.get(0).setText("1");
+        squares.get(2).setText("2");
+        squares.get(6).setText("3");
+        return new SolveCrosswordRequest(null, new ParsedGrid(3, 3, squares), "1 a\n3 b\n1 c\n2 d");
+    }
+
+    private static SolveSessionUpdate pin(int row, int col, String letter) {
+        SolveSessionUpdate update = new SolveSessionUpdate();
+        update.setPinnedLetters(Arrays.asList(new PinnedLetter(row, col, letter)));
+        return update;
+    }
+}
@@ -0,0 +1,29 @@
+package com.kyc.snap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+class TestDictionaries {
+
+    // compiles the words into a dictionary file in the directory and maps it
+    static DictionaryManager of(File directory, String... words) throws IOException {
+        File wordList = new File(directory, "words.txt");
+        File dictionary = new File(directory, "dictionary.bin");
+        Files.write(wordList.toPath(), Arrays.asList(words), StandardCharsets.UTF_8);
+        ByteBuffer compiled = DictionaryManager.compile(wordList.getPath());
+        try (FileChannel output = FileChannel.open(dictionary.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (compiled.hasRemaining())
+                output.write(compiled);
+        }
+        return DictionaryManager.map(dictionary.getPath());
+    }
+
+    private TestDictionaries() {}
+}
@@ -0,0 +1,84 @@
+package com.kyc.snap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CharStreams;
+import com.sun.net.httpserver.HttpServer;
+
+public class WordplaysClueProviderTest {
+
+    private static final String RESULTS_HTML = "<html><body><div id='wordlists'><table>"
+        + "<tr class='odd'><td><div class='stars'><div></div><div></div><div></div></div></td>"
+        + "<td><a href='/crossword-clues/CAT'>CAT</a></td></tr>"
+        + "<tr class='even'><td><div class='stars'><div></div></div></td>"
+        + "<td><a href='/crossword-clues/KIT'>KIT</a></td></tr>"
+        + "</table></div></body></html>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/crossword-solver", exchange -> {
+            requests.add(CharStreams.toString(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)));
+            byte[] response = RESULTS_HTML.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/crossword-solver";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testSolveClue() {
+        List<CrosswordClueResult> results = new WordplaysClueProvider(url).solveClue("Feline pet", 3);
+
+        // even rows come before odd rows
+        assertEquals(Arrays.asList(new CrosswordClueResult("KIT", 1), new CrosswordClueResult("CAT", 3)), results);
+        assertEquals(1, requests.size());
+        assertTrue(requests.get(0).startsWith("clue=Feline+pet&pattern=???&"));
+    }
+
+    @Test
+    public void testCachesResults() {
+        ClueProvider provider = new CachingClueProvider(new WordplaysClueProvider(url), folder.getRoot().getPath(),
+            new ObjectMapper());
+        List<CrosswordClueResult> results = provider.solveClue("Feline pet", 3);
+        assertEquals(results, provider.solveClue("  feline   PET ", 3));
+        assertEquals(1, requests.size());
+
+        // a different length is a different lookup
+        provider.solveClue("Feline pet", 4);
+        assertEquals(2, requests.size());
+    }
+}